@@ -0,0 +1,78 @@
+package de.weltraumschaf.freemarkerdown;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the creation of template models.
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreateBenchmark {
+
+    /**
+     * Number of sections in the template.
+     */
+    @Param({"1", "10", "100"})
+    private int sections;
+
+    /**
+     * Shared engine.
+     */
+    private FreeMarkerDown fmd;
+    /**
+     * Template source.
+     */
+    private String template;
+
+    /**
+     * Prepares the engine and template.
+     */
+    @Setup
+    public void setUp() {
+        fmd = FreeMarkerDown.create(SampleTemplates.ENCODING);
+        template = SampleTemplates.fragment(sections);
+    }
+
+    /**
+     * Creates a fragment.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public Fragment createFragment() {
+        return fmd.createFragemnt(template, "fragment");
+    }
+
+    /**
+     * Creates a fragment which is rendered without Markdown.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public Fragment createFragmentWithoutMarkdown() {
+        return fmd.createFragemnt(template, "fragment", RenderOptions.WITHOUT_MARKDOWN);
+    }
+
+    /**
+     * Creates a layout.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public Layout createLayout() {
+        return fmd.createLayout(template, "layout");
+    }
+
+}
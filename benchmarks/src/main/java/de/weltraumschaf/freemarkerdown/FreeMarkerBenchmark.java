@@ -0,0 +1,88 @@
+package de.weltraumschaf.freemarkerdown;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the FreeMarker phase of the rendering.
+ * <p>
+ * The templates are rendered without Markdown and without pre processors, so only the FreeMarker template is
+ * processed.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FreeMarkerBenchmark {
+
+    /**
+     * Number of sections in the template.
+     */
+    @Param({"1", "10", "100"})
+    private int sections;
+
+    /**
+     * Shared engine.
+     */
+    private FreeMarkerDown fmd;
+    /**
+     * Used to compile templates.
+     */
+    private final FreeMarker factory = new FreeMarker();
+    /**
+     * Used FreeMarker configuration.
+     */
+    private Configuration config;
+    /**
+     * Template source.
+     */
+    private String template;
+
+    /**
+     * Prepares the engine and template.
+     */
+    @Setup
+    public void setUp() {
+        config = FreeMarkerDown.createConfiguration(SampleTemplates.ENCODING);
+        fmd = FreeMarkerDown.create(config);
+        template = SampleTemplates.fragment(sections);
+    }
+
+    /**
+     * Compiles the FreeMarker template.
+     *
+     * @return never {@code null}
+     * @throws IOException if template can't be compiled
+     */
+    @Benchmark
+    public Template compile() throws IOException {
+        return factory.createTemplate(template, config);
+    }
+
+    /**
+     * Processes the template by the engine, which reuses the compiled template.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public String process() {
+        final Fragment fragment = fmd.createFragemnt(template, "fragment", RenderOptions.WITHOUT_MARKDOWN);
+        fragment.assignVariable("title", "Benchmark");
+        fragment.assignVariable("items", SampleTemplates.items());
+        return fragment.render();
+    }
+
+}
@@ -0,0 +1,62 @@
+package de.weltraumschaf.freemarkerdown;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the Markdown conversion phase of the rendering.
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MarkdownBenchmark {
+
+    /**
+     * Number of sections in the template.
+     */
+    @Param({"1", "10", "100"})
+    private int sections;
+
+    /**
+     * Benchmarked processor.
+     */
+    private final MarkdownProcessor markdown = new MarkdownProcessor();
+    /**
+     * Markdown as FreeMarker would have rendered it.
+     */
+    private String rendered;
+
+    /**
+     * Renders the template without Markdown conversion.
+     */
+    @Setup
+    public void setUp() {
+        final FreeMarkerDown fmd = FreeMarkerDown.create(SampleTemplates.ENCODING);
+        final Fragment fragment = fmd.createFragemnt(
+            SampleTemplates.fragment(sections), "fragment", RenderOptions.WITHOUT_MARKDOWN);
+        fragment.assignVariable("title", "Benchmark");
+        fragment.assignVariable("items", SampleTemplates.items());
+        rendered = fmd.render(fragment);
+    }
+
+    /**
+     * Converts the rendered Markdown to HTML.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public String convert() {
+        return markdown.markdownToHtml(rendered);
+    }
+
+}
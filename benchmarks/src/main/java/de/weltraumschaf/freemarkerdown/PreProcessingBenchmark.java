@@ -0,0 +1,137 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Maps;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the {@link PreProcessorApplierImpl pre processor applier}.
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreProcessingBenchmark {
+
+    /**
+     * Number of sections in the template.
+     */
+    @Param({"1", "10", "100"})
+    private int sections;
+
+    /**
+     * Benchmarked applier.
+     */
+    private final PreProcessorApplier applier = new PreProcessorApplierImpl();
+    /**
+     * Benchmarked applier with pre processing cache.
+     */
+    private final PreProcessorApplier cachingApplier = new CachingPreProcessorApplier(10);
+    /**
+     * Processor whose output may be cached.
+     */
+    private final PreProcessor stripping = new StrippingProcessor();
+    /**
+     * Processor with matching instructions.
+     */
+    private PreProcessor keyValue;
+    /**
+     * Processor without matching instructions.
+     */
+    private PreProcessor unused;
+    /**
+     * Template source.
+     */
+    private String template;
+
+    /**
+     * Prepares the processors and template.
+     */
+    @Setup
+    public void setUp() {
+        final Map<String, String> result = Maps.newHashMap();
+        keyValue = PreProcessors.createKeyValueProcessor(result);
+        unused = PreProcessors.createKeyValueProcessor(result, "unused");
+        template = SampleTemplates.fragment(sections);
+    }
+
+    /**
+     * Applies a processor which has an instruction in the template.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public String applyMatchingProcessor() {
+        return applier.apply(template, keyValue);
+    }
+
+    /**
+     * Applies a processor which has no instruction in the template.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public String applyNotMatchingProcessor() {
+        return applier.apply(template, unused);
+    }
+
+    /**
+     * Applies a cacheable processor without cache.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public String applyCacheableProcessor() {
+        return applier.apply(template, stripping);
+    }
+
+    /**
+     * Applies a cacheable processor with cache, so it is only invoked on the first invocation.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public String applyCacheableProcessorWithCache() {
+        return cachingApplier.apply(template, stripping);
+    }
+
+    /**
+     * Removes the key value block without side outputs.
+     */
+    private static final class StrippingProcessor implements CacheablePreProcessor {
+
+        @Override
+        public String process(final String input) {
+            return "";
+        }
+
+        @Override
+        public String getTarget() {
+            return "fdm-keyvalue";
+        }
+
+        @Override
+        public boolean hasWarnings() {
+            return false;
+        }
+
+        @Override
+        public Collection<String> getWarnings() {
+            return Collections.emptyList();
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Maps;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures end to end rendering of nested layouts.
+ * <p>
+ * The rendered page is a layout with the given number of Markdown fragments and one sub layout which also has the
+ * given number of fragments. A key value processor is registered, so all phases are executed.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark {
+
+    /**
+     * Number of fragments per layout.
+     */
+    @Param({"1", "10", "40"})
+    private int fragments;
+    /**
+     * Number of sections per fragment.
+     */
+    @Param({"1", "10"})
+    private int sections;
+
+    /**
+     * Shared engine.
+     */
+    private FreeMarkerDown fmd;
+    /**
+     * Fragment template source.
+     */
+    private String fragmentTemplate;
+    /**
+     * Page layout template source.
+     */
+    private String pageTemplate;
+    /**
+     * Sub layout template source.
+     */
+    private String subTemplate;
+
+    /**
+     * Prepares the engine and templates.
+     */
+    @Setup
+    public void setUp() {
+        fmd = FreeMarkerDown.create(SampleTemplates.ENCODING);
+        fmd.register(PreProcessors.createKeyValueProcessor(Maps.<String, String>newHashMap()));
+        fragmentTemplate = SampleTemplates.fragment(sections);
+        // One more variable for the sub layout.
+        pageTemplate = SampleTemplates.layout(fragments + 1);
+        subTemplate = SampleTemplates.layout(fragments);
+    }
+
+    /**
+     * Renders the whole page.
+     *
+     * @return never {@code null}
+     */
+    @Benchmark
+    public String render() {
+        final Layout page = createLayout(pageTemplate, "page");
+        final Layout sub = createLayout(subTemplate, "sub");
+        page.assignTemplateModel(SampleTemplates.fragmentName(fragments), sub);
+        return fmd.render(page);
+    }
+
+    /**
+     * Creates a layout with fragments.
+     *
+     * @param template must not be {@code null}
+     * @param name must not be {@code null} or empty
+     * @return never {@code null}
+     */
+    private Layout createLayout(final String template, final String name) {
+        final Layout layout = fmd.createLayout(template, name, RenderOptions.WITHOUT_MARKDOWN);
+        layout.assignVariable("title", name);
+        layout.assignVariable("items", SampleTemplates.items());
+
+        for (int i = 0; i < fragments; ++i) {
+            layout.assignTemplateModel(
+                SampleTemplates.fragmentName(i), fmd.createFragemnt(fragmentTemplate, name + i));
+        }
+
+        return layout;
+    }
+
+}
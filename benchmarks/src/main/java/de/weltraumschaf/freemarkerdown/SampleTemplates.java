@@ -0,0 +1,109 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Lists;
+import java.util.List;
+
+/**
+ * Generates realistic templates for the benchmarks.
+ * <p>
+ * The generated templates contain a key value block, Markdown headlines, lists and paragraphs with FreeMarker
+ * interpolations and directives.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+final class SampleTemplates {
+
+    /**
+     * Used encoding.
+     */
+    static final String ENCODING = "utf-8";
+
+    /**
+     * Text used for paragraphs.
+     */
+    private static final String LOREM = "Lorem ipsum dolor sit amet, consetetur sadipscing elitr, sed diam nonumy "
+        + "eirmod tempor invidunt ut labore et dolore magna aliquyam erat, sed diam voluptua. At vero eos et accusam "
+        + "et justo duo dolores et ea rebum. Stet clita kasd gubergren, no sea takimata sanctus est.\n";
+
+    /**
+     * Hidden for pure static class.
+     */
+    private SampleTemplates() {
+        super();
+        throw new UnsupportedOperationException("Do not call via reflection!");
+    }
+
+    /**
+     * Creates a Markdown fragment template with the given number of sections.
+     * <p>
+     * The template expects the variables {@code title} and {@code items}.
+     * </p>
+     *
+     * @param sections number of sections
+     * @return never {@code null}
+     */
+    static String fragment(final int sections) {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("<?fdm-keyvalue\n")
+            .append("    Title: Benchmark\n")
+            .append("    Description: Generated benchmark template.\n")
+            .append("    Keywords: benchmark, jmh\n")
+            .append("?>\n\n");
+
+        for (int i = 0; i < sections; ++i) {
+            buffer.append("## ${title} ").append(i).append("\n\n")
+                .append(LOREM)
+                .append("\n")
+                .append("<#list items as item>\n")
+                .append("- *${item}* is item number ${item_index}\n")
+                .append("</#list>\n\n")
+                .append(LOREM)
+                .append("\n");
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * Creates a layout template which includes the given number of fragments.
+     * <p>
+     * The fragments must be assigned as {@code fragment0 ... fragmentN}.
+     * </p>
+     *
+     * @param fragments number of fragments
+     * @return never {@code null}
+     */
+    static String layout(final int fragments) {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("<html>\n<head><title>${title}</title></head>\n<body>\n");
+
+        for (int i = 0; i < fragments; ++i) {
+            buffer.append("<div class=\"fragment\">${").append(fragmentName(i)).append("}</div>\n");
+        }
+
+        buffer.append("</body>\n</html>\n");
+        return buffer.toString();
+    }
+
+    /**
+     * Name of the fragment variable.
+     *
+     * @param index not negative
+     * @return never {@code null}
+     */
+    static String fragmentName(final int index) {
+        return "fragment" + index;
+    }
+
+    /**
+     * Creates the items list variable.
+     *
+     * @return never {@code null}
+     */
+    static List<String> items() {
+        return Lists.newArrayList("apples", "bananas", "pears", "oranges", "cherries");
+    }
+
+}
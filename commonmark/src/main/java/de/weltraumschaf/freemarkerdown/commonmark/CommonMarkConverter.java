@@ -0,0 +1,67 @@
+package de.weltraumschaf.freemarkerdown.commonmark;
+
+import de.weltraumschaf.commons.validate.Validate;
+import de.weltraumschaf.freemarkerdown.MarkdownConverter;
+import net.jcip.annotations.ThreadSafe;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.commonmark.parser.Parser;
+
+/**
+ * Converts Markdown to HTML with <a href="https://github.com/atlassian/commonmark-java">commonmark-java</a>.
+ * <p>
+ * Example:
+ * </p>
+ * <pre>{@code
+ * final FreeMarkerDown fmd = FreeMarkerDown.create("utf-8");
+ * fmd.setMarkdownConverter(new CommonMarkConverter());
+ * }</pre>
+ * <p>
+ * The parser and renderer are created once and shared by all threads. CommonMark parses in linear time, so
+ * conversions are never aborted.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+public final class CommonMarkConverter implements MarkdownConverter {
+
+    /**
+     * Parses the Markdown.
+     */
+    private final Parser parser;
+    /**
+     * Renders the parsed Markdown as HTML.
+     */
+    private final HtmlRenderer renderer;
+
+    /**
+     * Creates a converter with the default CommonMark options.
+     */
+    public CommonMarkConverter() {
+        this(Parser.builder().build(), HtmlRenderer.builder().build());
+    }
+
+    /**
+     * Creates a converter with a custom configured parser and renderer.
+     *
+     * @param parser must not be {@code null}
+     * @param renderer must not be {@code null}
+     */
+    public CommonMarkConverter(final Parser parser, final HtmlRenderer renderer) {
+        super();
+        this.parser = Validate.notNull(parser, "parser");
+        this.renderer = Validate.notNull(renderer, "renderer");
+    }
+
+    @Override
+    public String convert(final String markdown) {
+        return renderer.render(parser.parse(Validate.notNull(markdown, "markdown")));
+    }
+
+    @Override
+    public String toString() {
+        return "CommonMarkConverter{}";
+    }
+
+}
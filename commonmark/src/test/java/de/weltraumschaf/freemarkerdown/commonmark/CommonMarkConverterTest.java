@@ -0,0 +1,39 @@
+package de.weltraumschaf.freemarkerdown.commonmark;
+
+import de.weltraumschaf.freemarkerdown.Fragment;
+import de.weltraumschaf.freemarkerdown.FreeMarkerDown;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CommonMarkConverter}.
+ *
+ * @author Sven Strittmatter
+ */
+public class CommonMarkConverterTest {
+
+    private final CommonMarkConverter sut = new CommonMarkConverter();
+
+    @Test(expected = NullPointerException.class)
+    public void convert_throwsExceptionIfNullPassedIn() {
+        sut.convert(null);
+    }
+
+    @Test
+    public void convert() {
+        assertThat(sut.convert("foo *bar* baz"), is("<p>foo <em>bar</em> baz</p>\n"));
+        assertThat(sut.convert("## snafu"), is("<h2>snafu</h2>\n"));
+    }
+
+    @Test
+    public void renderWithEngine() {
+        final FreeMarkerDown fmd = FreeMarkerDown.create("utf-8");
+        fmd.setMarkdownConverter(sut);
+        final Fragment fragment = fmd.createFragemnt("foo *${bar}*", "name");
+        fragment.assignVariable("bar", "baz");
+
+        assertThat(fmd.render(fragment), is("<p>foo <em>baz</em></p>\n"));
+    }
+
+}
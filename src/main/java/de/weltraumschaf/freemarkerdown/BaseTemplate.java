@@ -6,15 +6,16 @@ import de.weltraumschaf.commons.validate.Validate;
 import de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint;
 import static de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint.*;
 import freemarker.template.Configuration;
+import freemarker.template.Template;
 import freemarker.template.TemplateException;
-import java.io.ByteArrayOutputStream;
 import java.io.IOError;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 import net.jcip.annotations.NotThreadSafe;
-import org.pegdown.PegDownProcessor;
 
 /**
  * Common template functionality.
@@ -25,6 +26,19 @@ import org.pegdown.PegDownProcessor;
 @NotThreadSafe
 abstract class BaseTemplate extends EventProducer implements TemplateModel {
 
+    /**
+     * Shared default applier, because it is stateless.
+     */
+    private static final PreProcessorApplier DEFAULT_APPLIER = new PreProcessorApplierImpl();
+    /**
+     * Shared default factory, because loading its properties is expensive.
+     */
+    private static final FreeMarker DEFAULT_FACTORY = new FreeMarker();
+    /**
+     * Shared default Markdown processor, because it lazily creates one PegDown processor per thread.
+     */
+    private static final MarkdownProcessor DEFAULT_MARKDOWN = new MarkdownProcessor();
+
     /**
      * Holds the assigned variables.
      */
@@ -37,7 +51,7 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
      * object.
      * </p>
      */
-    private final transient PegDownProcessor markdown = new PegDownProcessor();
+    private transient MarkdownProcessor markdown = DEFAULT_MARKDOWN;
 
     /**
      * Rendered template as original.
@@ -72,7 +86,7 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
     /**
      * Injectable dependency.
      */
-    private transient PreProcessorApplier preProcessorApplier = new PreProcessorApplierImpl();
+    private transient PreProcessorApplier preProcessorApplier = DEFAULT_APPLIER;
 
     /**
      * Pre processed template.
@@ -84,10 +98,43 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
      */
     private transient String preProcessedTemplate = "";
 
+    /**
+     * Targets of all processing instructions in the {@link #preProcessedTemplate preprocessed template}.
+     * <p>
+     * Computed once on creation and only again if a pre processor modified the template, so that processors whose
+     * targets do not occur are skipped without scanning the template.
+     * </p>
+     */
+    private transient Set<String> instructionTargets;
+
     /**
      * Provides FreeMarker objects.
      */
-    private transient FreeMarker factory = new FreeMarker();
+    private transient FreeMarker factory = DEFAULT_FACTORY;
+
+    /**
+     * Caches compiled templates.
+     * <p>
+     * May be {@code null}, then the template is compiled on each rendering.
+     * </p>
+     */
+    private transient TemplateCache templateCache;
+
+    /**
+     * Caches rendered content of {@link RenderOptions#CACHEABLE cacheable} templates.
+     * <p>
+     * May be {@code null}, then the template is rendered each time.
+     * </p>
+     */
+    private transient OutputCache outputCache;
+
+    /**
+     * Identifies the variables of a {@link RenderOptions#CACHEABLE cacheable} template.
+     * <p>
+     * May be {@code null}, then the template is rendered each time.
+     * </p>
+     */
+    private Object cacheKey;
 
     /**
      * Dedicated constructor.
@@ -107,6 +154,7 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
         super();
         this.template = Validate.notNull(template, "template");
         this.preProcessedTemplate = this.template;
+        this.instructionTargets = PreProcessorApplierImpl.findTargets(this.template);
         this.encoding = Validate.notEmpty(encoding, "encoding");
         this.freeMarkerConfig = Validate.notNull(freeMarkerConfig, "freeMarkerConfig");
         this.options = Validate.notNull(options, "options");
@@ -122,6 +170,33 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
         this.factory = Validate.notNull(factory, "factory");
     }
 
+    /**
+     * Injection point for Markdown processor.
+     *
+     * @param markdown must not be {@code null}
+     */
+    final void setMarkdownProcessor(final MarkdownProcessor markdown) {
+        this.markdown = Validate.notNull(markdown, "markdown");
+    }
+
+    /**
+     * Injection point for template cache.
+     *
+     * @param templateCache must not be {@code null}
+     */
+    final void setTemplateCache(final TemplateCache templateCache) {
+        this.templateCache = Validate.notNull(templateCache, "templateCache");
+    }
+
+    /**
+     * Injection point for output cache.
+     *
+     * @param outputCache must not be {@code null}
+     */
+    final void setOutputCache(final OutputCache outputCache) {
+        this.outputCache = Validate.notNull(outputCache, "outputCache");
+    }
+
     /**
      * Injection point for applier.
      *
@@ -160,8 +235,39 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
         assignVariable(name.getVariableName(), value);
     }
 
+    /**
+     * Set the key which identifies the variables of the template for the output cache.
+     *
+     * @param cacheKey must not be {@code null}
+     */
+    final void setCacheKey(final Object cacheKey) {
+        this.cacheKey = Validate.notNull(cacheKey, "cacheKey");
+    }
+
     @Override
     public String render() {
+        if (!isCached()) {
+            return renderContent();
+        }
+
+        final OutputCache.Key key = new OutputCache.Key(templateName, preProcessedTemplate, options, cacheKey);
+        String content = outputCache.get(key);
+
+        if (null == content) {
+            content = renderContent();
+            outputCache.put(key, content);
+        }
+
+        return content;
+    }
+
+    /**
+     * Renders the template and converts Markdown.
+     *
+     * @return never {@code null}
+     */
+    private String renderContent() {
+        prepareRendering();
         triggerEvent(BEFORE_RENDERING, preProcessedTemplate);
         String content = processTemplate();
         triggerEvent(AFTER_RENDERING, content);
@@ -177,6 +283,91 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
         return content;
     }
 
+    /**
+     * Renders the template into the given writer.
+     * <p>
+     * Templates rendered {@link RenderOptions#WITHOUT_MARKDOWN without Markdown} are streamed directly into the
+     * writer without building an intermediate string. The writer is not closed.
+     * </p>
+     * <p>
+     * Throws {@link TemplateError} if template can't be parsed.
+     * </p>
+     *
+     * @param out must not be {@code null}
+     * @throws IOException if the writer can't be written
+     */
+    void render(final Writer out) throws IOException {
+        Validate.notNull(out, "out");
+
+        if (isStreamable()) {
+            prepareRendering();
+            triggerEvent(BEFORE_RENDERING, preProcessedTemplate);
+            processTemplate(out);
+        } else if (isMarkdownStreamable()) {
+            prepareRendering();
+            triggerEvent(BEFORE_RENDERING, preProcessedTemplate);
+            final MarkdownBlockWriter blocks = new MarkdownBlockWriter(out, markdown);
+            processTemplate(blocks);
+            blocks.finish();
+        } else {
+            // Markdown conversion and interceptors need the whole rendered content.
+            out.write(render());
+        }
+    }
+
+    /**
+     * Called right before the template itself is rendered.
+     * <p>
+     * Not called if the content is served from the output cache. Does nothing by default.
+     * </p>
+     */
+    void prepareRendering() {
+        // Nothing to prepare by default.
+    }
+
+    /**
+     * Whether the FreeMarker output can be written directly to a writer.
+     * <p>
+     * This is only possible if there is no Markdown conversion, no event consumer and no cache which needs the
+     * rendered content as string.
+     * </p>
+     *
+     * @return {@code true} if streamable, else {@code false}
+     */
+    private boolean isStreamable() {
+        return options.contains(RenderOptions.WITHOUT_MARKDOWN) && !isListened(AFTER_RENDERING) && !isCached();
+    }
+
+    /**
+     * Whether the FreeMarker output can be converted block by block into a writer.
+     * <p>
+     * This is only possible if there is no event consumer and no cache which needs the rendered or converted content
+     * as string.
+     * </p>
+     *
+     * @return {@code true} if streamable, else {@code false}
+     */
+    private boolean isMarkdownStreamable() {
+        return options.contains(RenderOptions.STREAMING_MARKDOWN)
+            && !options.contains(RenderOptions.WITHOUT_MARKDOWN)
+            && !isListened(AFTER_RENDERING)
+            && !isListened(BEFORE_MARKDOWN)
+            && !isListened(AFTER_MARKDOWN)
+            && !isCached();
+    }
+
+    /**
+     * Whether the rendered content is cached.
+     * <p>
+     * On a cache hit no events are triggered, because the template is neither rendered nor converted.
+     * </p>
+     *
+     * @return {@code true} if cacheable, a cache key is set and an output cache is injected, else {@code false}
+     */
+    private boolean isCached() {
+        return null != outputCache && null != cacheKey && options.contains(RenderOptions.CACHEABLE);
+    }
+
     /**
      * Processes the FreeMarker template.
      * <p>
@@ -186,21 +377,49 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
      * @return never {@code null}
      */
     private String processTemplate() {
+        final StringWriter out = new StringWriter();
+
         try {
-            final ByteArrayOutputStream out = new ByteArrayOutputStream();
-            factory.createTemplate(preProcessedTemplate, freeMarkerConfig)
-                    .process(
-                            templateVariables.getData(),
-                            new OutputStreamWriter(out, encoding));
-            return out.toString(encoding);
+            processTemplate(out);
         } catch (final IOException ex) {
             // Should never happen because we only operate on strings, not on files.
             throw new IOError(ex);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Processes the FreeMarker template into the given writer.
+     * <p>
+     * Throws {@link TemplateError} if template can't be rendered.
+     * </p>
+     *
+     * @param out must not be {@code null}
+     * @throws IOException if template can't be created or written
+     */
+    private void processTemplate(final Writer out) throws IOException {
+        try {
+            createTemplate().process(templateVariables.toTemplateModel(freeMarkerConfig.getObjectWrapper()), out);
         } catch (final TemplateException ex) {
             throw new TemplateError(ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Get the compiled FreeMarker template for the {@link #preProcessedTemplate preprocessed template}.
+     *
+     * @return never {@code null}
+     * @throws IOException if template can't be created
+     */
+    private Template createTemplate() throws IOException {
+        if (null == templateCache) {
+            return factory.createTemplate(preProcessedTemplate, freeMarkerConfig);
+        }
+
+        return templateCache.getTemplate(templateName, preProcessedTemplate, freeMarkerConfig);
+    }
+
     /**
      * Markdown conversion.
      *
@@ -213,11 +432,73 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
 
     @Override
     public void apply(final PreProcessor processor) {
+        Validate.notNull(processor, "processor");
+        triggerEvent(BEFORE_PREPROCESSING, preProcessedTemplate);
+
+        if (instructionTargets.contains(processor.getTarget())) {
+            setPreProcessedTemplate(preProcessorApplier.apply(preProcessedTemplate, processor));
+        }
+
+        triggerEvent(AFTER_PREPROCESSING, preProcessedTemplate);
+    }
+
+    /**
+     * Applies all pre processors in one pass.
+     * <p>
+     * In contrast to {@link #apply(de.weltraumschaf.freemarkerdown.PreProcessor)} the template is only scanned once
+     * and the preprocessing events are only triggered once for all processors.
+     * </p>
+     *
+     * @param processors must not be {@code null}
+     */
+    void applyAll(final Collection<PreProcessor> processors) {
+        Validate.notNull(processors, "processors");
         triggerEvent(BEFORE_PREPROCESSING, preProcessedTemplate);
-        preProcessedTemplate = preProcessorApplier.apply(preProcessedTemplate, processor);
+        final Collection<PreProcessor> applicable = findApplicable(processors);
+
+        if (!applicable.isEmpty()) {
+            setPreProcessedTemplate(preProcessorApplier.applyAll(preProcessedTemplate, applicable));
+        }
+
         triggerEvent(AFTER_PREPROCESSING, preProcessedTemplate);
     }
 
+    /**
+     * Get the processors whose targets occur in the preprocessed template.
+     *
+     * @param processors must not be {@code null}
+     * @return never {@code null}
+     */
+    private Collection<PreProcessor> findApplicable(final Collection<PreProcessor> processors) {
+        if (instructionTargets.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Collection<PreProcessor> applicable = Lists.newArrayList();
+
+        for (final PreProcessor processor : processors) {
+            if (instructionTargets.contains(processor.getTarget())) {
+                applicable.add(processor);
+            }
+        }
+
+        return applicable;
+    }
+
+    /**
+     * Set the preprocessed template and finds its instruction targets again if it was modified.
+     *
+     * @param processed must not be {@code null}
+     */
+    private void setPreProcessedTemplate(final String processed) {
+        Validate.notNull(processed, "processed");
+
+        if (!processed.equals(preProcessedTemplate)) {
+            preProcessedTemplate = processed;
+            instructionTargets = PreProcessorApplierImpl.findTargets(processed);
+        }
+    }
+
     @Override
     public String getName() {
         return templateName;
@@ -253,6 +534,9 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
 
     /**
      * Triggers a template event to registered event consumers.
+     * <p>
+     * The event is only created if at least one consumer listens to the execution point.
+     * </p>
      *
      * @param executionPoint must not be {@code null}
      * @param content must not be {@code null}
@@ -260,9 +544,40 @@ abstract class BaseTemplate extends EventProducer implements TemplateModel {
     void triggerEvent(final ExecutionPoint executionPoint, final String content) {
         Validate.notNull(executionPoint, "executionPoint");
 
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        Event event = null;
+
+        for (final EventConsumer listener : listeners) {
+            if (!listener.isListening(executionPoint)) {
+                continue;
+            }
+
+            if (null == event) {
+                // Created at most once and only if needed, because events are immutable.
+                event = new Event(executionPoint, this, content);
+            }
+
+            listener.trigger(event);
+        }
+    }
+
+    /**
+     * Whether any registered event consumer listens to the given execution point.
+     *
+     * @param executionPoint must not be {@code null}
+     * @return {@code true} if at least one consumer listens, else {@code false}
+     */
+    boolean isListened(final ExecutionPoint executionPoint) {
         for (final EventConsumer listener : listeners) {
-            listener.trigger(new Event(executionPoint, this, content));
+            if (listener.isListening(executionPoint)) {
+                return true;
+            }
         }
+
+        return false;
     }
 
 }
@@ -0,0 +1,139 @@
+package de.weltraumschaf.freemarkerdown;
+
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Snapshot of the counters of a cache used by {@link FreeMarkerDown}.
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@Immutable
+public final class CacheStatistics {
+
+    /**
+     * Number of successful lookups.
+     */
+    private final long hits;
+    /**
+     * Number of failed lookups.
+     */
+    private final long misses;
+    /**
+     * Number of entries removed because the cache was full.
+     */
+    private final long evictions;
+    /**
+     * Number of entries at the time of the snapshot.
+     */
+    private final int size;
+    /**
+     * Maximum number of entries.
+     */
+    private final int maxSize;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param hits number of successful lookups
+     * @param misses number of failed lookups
+     * @param evictions number of evicted entries
+     * @param size current number of entries
+     * @param maxSize maximum number of entries
+     */
+    CacheStatistics(final long hits, final long misses, final long evictions, final int size, final int maxSize) {
+        super();
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the number of successful lookups.
+     *
+     * @return not negative
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of failed lookups.
+     *
+     * @return not negative
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of entries removed because the cache was full.
+     *
+     * @return not negative
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of cached entries.
+     *
+     * @return not negative
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the maximum number of cached entries.
+     *
+     * @return not negative
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the ratio of hits to all lookups.
+     *
+     * @return value between {@code 0.0} and {@code 1.0}, {@code 0.0} if there were no lookups
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return 0 == lookups ? 0.0d : (double) hits / lookups;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hits, misses, evictions, size, maxSize);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof CacheStatistics)) {
+            return false;
+        }
+
+        final CacheStatistics other = (CacheStatistics) obj;
+        return hits == other.hits
+            && misses == other.misses
+            && evictions == other.evictions
+            && size == other.size
+            && maxSize == other.maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{"
+            + "hits=" + hits + ", "
+            + "misses=" + misses + ", "
+            + "evictions=" + evictions + ", "
+            + "size=" + size + ", "
+            + "maxSize=" + maxSize
+            + '}';
+    }
+
+}
@@ -0,0 +1,17 @@
+package de.weltraumschaf.freemarkerdown;
+
+/**
+ * Marks pre processors whose output may be cached.
+ * <p>
+ * The output of such a processor must only depend on the processed instruction, and the processor must not have
+ * side outputs such as the result map of the {@link PreProcessors#createKeyValueProcessor(java.util.Map) key value
+ * processor}. The {@link FreeMarkerDown#setPreProcessingCacheSize(int) pre processing cache} only caches templates
+ * whose instructions are all processed by such processors. On a cache hit the processors are not invoked, so their
+ * {@link #getWarnings() warnings} are those of their last invocation.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+public interface CacheablePreProcessor extends PreProcessor {
+}
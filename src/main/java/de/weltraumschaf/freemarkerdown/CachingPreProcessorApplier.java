@@ -0,0 +1,202 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Applier which caches the preprocessed templates.
+ * <p>
+ * The output is cached by the template source and the applied processors, but only if all processors are
+ * {@link CacheablePreProcessor cacheable}. On a cache hit neither the template is scanned nor any processor is
+ * invoked. Templates with instructions for other processors are processed without any cache lookup, so that side
+ * outputs (such as the key value processor filling its result map) are never skipped.
+ * </p>
+ * <p>
+ * The processors are compared by identity. The source is compared by its content, which is cheap for repeatedly
+ * rendered templates because they pass the same string instance with its cached hash. If the maximum size is
+ * {@code 0} the templates are processed without any cache lookup.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+final class CachingPreProcessorApplier implements PreProcessorApplier {
+
+    /**
+     * Processes the templates on cache miss.
+     */
+    private final PreProcessorApplierImpl scanner = new PreProcessorApplierImpl();
+    /**
+     * Holds the preprocessed templates.
+     */
+    private final LruCache<Key, String> processed;
+    /**
+     * Whether the cache is used at all.
+     */
+    private volatile boolean enabled;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    CachingPreProcessorApplier(final int maxSize) {
+        super();
+        processed = new LruCache<>(maxSize);
+        enabled = maxSize > 0;
+    }
+
+    @Override
+    public String apply(final String subject, final PreProcessor processor) {
+        Validate.notNull(processor, "processor");
+        return applyAll(subject, Collections.singletonList(processor));
+    }
+
+    @Override
+    public String applyAll(final String subject, final Collection<PreProcessor> processors) {
+        Validate.notNull(subject, "subject");
+        final Map<String, PreProcessor> targets
+            = PreProcessorApplierImpl.mapStartTokens(Validate.notNull(processors, "processors"));
+
+        if (targets.isEmpty()) {
+            return subject;
+        }
+
+        if (!enabled || !isCacheable(targets.values())) {
+            return scanner.scan(subject, targets.keySet()).apply(targets);
+        }
+
+        final Key key = new Key(subject, targets);
+        String result = processed.get(key);
+
+        if (null == result) {
+            result = scanner.scan(subject, targets.keySet()).apply(targets);
+            processed.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Whether all given processors are cacheable.
+     *
+     * @param processors must not be {@code null}
+     * @return {@code true} if the output may be cached, else {@code false}
+     */
+    private static boolean isCacheable(final Collection<PreProcessor> processors) {
+        for (final PreProcessor processor : processors) {
+            if (!(processor instanceof CacheablePreProcessor)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Set the maximum number of cached templates.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    void setMaxSize(final int maxSize) {
+        processed.setMaxSize(maxSize);
+        enabled = maxSize > 0;
+    }
+
+    /**
+     * Get a snapshot of the cache counters.
+     *
+     * @return never {@code null}
+     */
+    CacheStatistics getStatistics() {
+        return processed.getStatistics();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingPreProcessorApplier{" + "processed=" + processed + '}';
+    }
+
+    /**
+     * Identifies a preprocessed template.
+     */
+    @Immutable
+    private static final class Key {
+
+        /**
+         * Source of the template.
+         */
+        private final String source;
+        /**
+         * Applied processors by their start tokens, compared by identity.
+         */
+        private final Map<String, PreProcessor> targets;
+        /**
+         * Precomputed hash because the source may be large.
+         */
+        private final int hash;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param source must not be {@code null}
+         * @param targets must not be {@code null}, not modified afterwards
+         */
+        Key(final String source, final Map<String, PreProcessor> targets) {
+            super();
+            this.source = Validate.notNull(source, "source");
+            this.targets = Validate.notNull(targets, "targets");
+            int targetsHash = 0;
+
+            for (final Map.Entry<String, PreProcessor> target : targets.entrySet()) {
+                targetsHash += target.getKey().hashCode() ^ System.identityHashCode(target.getValue());
+            }
+
+            this.hash = 31 * source.hashCode() + targetsHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return hash == other.hash
+                && sameTargets(other.targets)
+                && source.equals(other.source);
+        }
+
+        /**
+         * Whether the other targets map the same start tokens to the same processors.
+         *
+         * @param other must not be {@code null}
+         * @return {@code true} if same, else {@code false}
+         */
+        private boolean sameTargets(final Map<String, PreProcessor> other) {
+            if (targets.size() != other.size()) {
+                return false;
+            }
+
+            for (final Map.Entry<String, PreProcessor> target : targets.entrySet()) {
+                if (target.getValue() != other.get(target.getKey())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+    }
+
+}
@@ -17,6 +17,18 @@ interface EventConsumer {
      */
     void trigger(Event event);
 
+    /**
+     * Whether the consumer is interested in events for the given execution point.
+     * <p>
+     * Producers must not create and trigger events for execution points the consumer is not listening to.
+     * </p>
+     *
+     * @param point must not be {@code null}
+     * @return {@code true} if events for the point are consumed, else {@code false}
+     * @since 1.0.1
+     */
+    boolean isListening(ExecutionPoint point);
+
     /**
      * Register an interceptor which will be invoked for events for given execution point.
      *
@@ -1,37 +1,61 @@
 package de.weltraumschaf.freemarkerdown;
 
-import de.weltraumschaf.commons.guava.Lists;
-import de.weltraumschaf.commons.guava.Maps;
 import de.weltraumschaf.commons.validate.Validate;
 import de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import net.jcip.annotations.ThreadSafe;
 
 /**
  * Dispatches events generated from the someone and delegates it to registered interceptors.
+ * <p>
+ * Events may be triggered concurrently from multiple threads. The interceptors of all execution points are
+ * created up front, so triggering an event and asking whether an execution point is active never allocates or
+ * synchronizes.
+ * </p>
  *
  * @since 1.0.0
  * @author Sven Strittmatter
  */
+@ThreadSafe
 final class EventDispatcher implements EventConsumer {
 
     /**
-     * Holds interceptors.
+     * Holds interceptors for each execution point.
+     * <p>
+     * The map itself is never modified after construction, only the lists are.
+     * </p>
      */
-    private final Map<Interceptor.ExecutionPoint, Collection<Interceptor>> interceptors = Maps.newHashMap();
+    private final Map<ExecutionPoint, Collection<Interceptor>> interceptors = new EnumMap<>(ExecutionPoint.class);
+
+    /**
+     * Dedicated constructor.
+     */
+    EventDispatcher() {
+        super();
+
+        for (final ExecutionPoint point : ExecutionPoint.values()) {
+            interceptors.put(point, new CopyOnWriteArrayList<Interceptor>());
+        }
+    }
 
     @Override
     public void trigger(final Event event) {
-        final Interceptor.ExecutionPoint point = event.getPoint();
+        final ExecutionPoint point = event.getPoint();
 
-        if (interceptors.containsKey(point)) {
-            for (final Interceptor interceptor : interceptors.get(point)) {
-                interceptor.intercept(point, event.getSource(), event.getContent());
-            }
+        for (final Interceptor interceptor : interceptors.get(point)) {
+            interceptor.intercept(point, event.getSource(), event.getContent());
         }
     }
 
+    @Override
+    public boolean isListening(final ExecutionPoint point) {
+        return !interceptors.get(Validate.notNull(point, "point")).isEmpty();
+    }
+
     /**
      * Registers an interceptor for an execution point.
      *
@@ -43,26 +67,47 @@ final class EventDispatcher implements EventConsumer {
         Validate.notNull(interceptor, "interceptor");
         Validate.notNull(point, "point");
 
-        if (!interceptors.containsKey(point)) {
-            interceptors.put(point, Lists.<Interceptor>newArrayList());
+        interceptors.get(point).add(interceptor);
+    }
+
+    /**
+     * Whether any interceptor is registered.
+     *
+     * @return {@code true} if at least one interceptor is registered, else {@code false}
+     */
+    boolean hasInterceptors() {
+        for (final Collection<Interceptor> registered : interceptors.values()) {
+            if (!registered.isEmpty()) {
+                return true;
+            }
         }
 
-        interceptors.get(point).add(interceptor);
+        return false;
     }
 
     @Override
     public String toString() {
-        return "EventDispatcher{" + "interceptors=" + interceptors + '}';
+        return "EventDispatcher{" + "interceptors=" + getInterceptors() + '}';
     }
 
-
     /**
      * Get the registered interceptors.
+     * <p>
+     * Only contains execution points with at least one interceptor.
+     * </p>
      *
      * @return never {@code null}, unmodifiable
      */
     Map<ExecutionPoint, Collection<Interceptor>> getInterceptors() {
-        return Collections.unmodifiableMap(interceptors);
+        final Map<ExecutionPoint, Collection<Interceptor>> registered = new EnumMap<>(ExecutionPoint.class);
+
+        for (final Map.Entry<ExecutionPoint, Collection<Interceptor>> entry : interceptors.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                registered.put(entry.getKey(), Collections.unmodifiableCollection(entry.getValue()));
+            }
+        }
+
+        return Collections.unmodifiableMap(registered);
     }
 
 }
@@ -7,6 +7,7 @@ import freemarker.template.DefaultObjectWrapperBuilder;
 import freemarker.template.Template;
 import freemarker.template.Version;
 import java.io.IOException;
+import net.jcip.annotations.ThreadSafe;
 
 /**
  * Helper to create FreeMarker objects.
@@ -14,6 +15,7 @@ import java.io.IOException;
  * @since 1.0.0
  * @author Sven Strittmatter
  */
+@ThreadSafe
 class FreeMarker {
 
     /**
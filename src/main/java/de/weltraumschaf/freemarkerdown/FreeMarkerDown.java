@@ -6,13 +6,27 @@ import de.weltraumschaf.commons.validate.Validate;
 import de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint;
 import freemarker.template.Configuration;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import net.jcip.annotations.NotThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
 
 /**
  * This is the main API entry point to render stuff.
@@ -23,17 +37,32 @@ import net.jcip.annotations.NotThreadSafe;
  * <p>
  * For examples see the <a href="http://weltraumschaf.github.io/freemarkerdown/examples.html">this site</a>
  * </p>
+ * <p>
+ * An instance may be shared between threads: Registered {@link PreProcessor pre processors},
+ * {@link Interceptor interceptors} and compiled templates are shared by all renderings. The per rendering state
+ * (assigned variables and the preprocessed template) is held by the {@link TemplateModel template models}, so
+ * each thread must render its own template models. Registered pre processors and interceptors are invoked
+ * concurrently and must be thread safe if the instance is shared. Register them before rendering starts.
+ * </p>
  *
  * @since 1.0.0
  * @author Sven Strittmatter
  */
-@NotThreadSafe
+@ThreadSafe
 public final class FreeMarkerDown {
 
+    /**
+     * Number of bytes read at once while {@link #extract(java.nio.file.Path, PreProcessor) extracting}.
+     */
+    static final int EXTRACTION_CHUNK_SIZE = 512;
+
     /**
      * Holds the pre processors keyed by name.
+     * <p>
+     * Copy on write, because pre processors are registered once but iterated on each rendering.
+     * </p>
      */
-    private final List<PreProcessor> preProcessors = Lists.newArrayList();
+    private final List<PreProcessor> preProcessors = new CopyOnWriteArrayList<>();
 
     /**
      * Configures FreeMarker.
@@ -45,6 +74,45 @@ public final class FreeMarkerDown {
      */
     private final EventDispatcher events;
 
+    /**
+     * Caches compiled FreeMarker templates of all templates created by this instance.
+     */
+    private final TemplateCache templateCache = new TemplateCache(new FreeMarker());
+
+    /**
+     * Caches the content of template files read by this instance.
+     * <p>
+     * Caching is disabled by default.
+     * </p>
+     */
+    private final TemplateFileCache templateFiles = new TemplateFileCache(0);
+
+    /**
+     * Caches rendered content of cacheable templates created by this instance.
+     */
+    private final OutputCache outputCache = new OutputCache();
+
+    /**
+     * Applies the pre processors for all templates created by this instance.
+     * <p>
+     * Caching is disabled by default.
+     * </p>
+     */
+    private final CachingPreProcessorApplier preProcessorApplier = new CachingPreProcessorApplier(0);
+
+    /**
+     * Converts Markdown for all templates created by this instance.
+     */
+    private final MarkdownProcessor markdown = new MarkdownProcessor();
+
+    /**
+     * Used by layouts to render their fragments concurrently.
+     * <p>
+     * May be {@code null}, then fragments are rendered sequentially.
+     * </p>
+     */
+    private volatile Executor fragmentExecutor;
+
     /**
      * Use {@link #create(java.lang.String)} or {@link #create(freemarker.template.Configuration)} to create new
      * instances.
@@ -61,7 +129,8 @@ public final class FreeMarkerDown {
     /**
      * Registers a pre processor.
      * <p>
-     * Preprocessors are called before any rendering.
+     * Preprocessors are called before any rendering. If this instance is used by multiple threads the processor
+     * must be thread safe.
      * </p>
      *
      * @param processor must not be {@code null}
@@ -81,6 +150,310 @@ public final class FreeMarkerDown {
         events.register(interceptor, point);
     }
 
+    /**
+     * Set the maximum number of compiled FreeMarker templates to cache.
+     * <p>
+     * Compiled templates are shared by all templates created by this instance and are reused as long as the
+     * preprocessed template source does not change. If the cache is full the least recently used compiled
+     * templates are evicted. Default size is 512.
+     * </p>
+     *
+     * @param maxSize must not be negative, {@code 0} disables the cache
+     * @since 1.0.1
+     */
+    public void setTemplateCacheSize(final int maxSize) {
+        templateCache.setMaxSize(maxSize);
+    }
+
+    /**
+     * Get a snapshot of the compiled template cache counters.
+     *
+     * @return never {@code null}
+     * @since 1.0.1
+     */
+    public CacheStatistics getTemplateCacheStatistics() {
+        return templateCache.getStatistics();
+    }
+
+    /**
+     * Set the maximum number of template files to cache.
+     * <p>
+     * Caching is disabled by default, because the cache holds the whole content of each file. If enabled, templates
+     * created from a {@link Path} read the file only once and reuse its content as long as the file is not
+     * modified. Choose the size by the number and size of the template files.
+     * </p>
+     *
+     * @param maxSize must not be negative, {@code 0} disables the cache
+     * @since 1.0.1
+     */
+    public void setTemplateFileCacheSize(final int maxSize) {
+        templateFiles.setMaxSize(maxSize);
+    }
+
+    /**
+     * Set the time to wait before a cached template file is checked for modification again.
+     * <p>
+     * Only applies if the {@link #setTemplateFileCacheSize(int) template file cache} is enabled. By default the
+     * modification time and size of a cached file are checked each time a template is created from it, which is much
+     * cheaper than reading it. If the files do not change while the application runs, a long delay avoids even this
+     * check.
+     * </p>
+     *
+     * @param delay must not be negative, {@code 0} checks each time
+     * @param unit must not be {@code null}
+     * @since 1.0.1
+     */
+    public void setTemplateUpdateDelay(final long delay, final TimeUnit unit) {
+        Validate.notNull(unit, "unit");
+        templateFiles.setUpdateDelay(unit.toMillis(delay));
+    }
+
+    /**
+     * Get a snapshot of the template file cache counters.
+     *
+     * @return never {@code null}
+     * @since 1.0.1
+     */
+    public CacheStatistics getTemplateFileCacheStatistics() {
+        return templateFiles.getStatistics();
+    }
+
+    /**
+     * Set the maximum number of rendered contents to cache.
+     * <p>
+     * Only templates created with {@link RenderOptions#CACHEABLE} and with an
+     * {@link #assignCacheKey(TemplateModel, java.lang.Object) assigned cache key} are cached. If the cache is full
+     * the least recently used contents are evicted. Default size is 512.
+     * </p>
+     *
+     * @param maxSize must not be negative, {@code 0} disables the cache
+     * @since 1.0.1
+     */
+    public void setOutputCacheSize(final int maxSize) {
+        outputCache.setMaxSize(maxSize);
+    }
+
+    /**
+     * Set the time a cached rendered content is valid.
+     * <p>
+     * By default cached contents never expire.
+     * </p>
+     *
+     * @param timeToLive must not be negative, {@code 0} for forever
+     * @param unit must not be {@code null}
+     * @since 1.0.1
+     */
+    public void setOutputCacheTimeToLive(final long timeToLive, final TimeUnit unit) {
+        Validate.notNull(unit, "unit");
+        outputCache.setTimeToLive(unit.toMillis(timeToLive));
+    }
+
+    /**
+     * Assign the key which identifies the variables of a {@link RenderOptions#CACHEABLE cacheable} template.
+     * <p>
+     * The rendered content is cached by the name, source and options of the template and this key. The variables
+     * are not part of the cache key, because hashing and comparing whole models on each rendering is expensive and
+     * the cache would keep them alive. So the key must change whenever the variables change, e.g. by combining the
+     * id and version of the rendered model. It must implement {@link Object#equals(java.lang.Object)} and
+     * {@link Object#hashCode()}.
+     * </p>
+     *
+     * @param template must not be {@code null}, must be created by this class
+     * @param key must not be {@code null}
+     * @since 1.0.1
+     */
+    public void assignCacheKey(final TemplateModel template, final Object key) {
+        Validate.notNull(template, "template");
+        Validate.notNull(key, "key");
+
+        if (!(template instanceof BaseTemplate)) {
+            throw new IllegalArgumentException("Only templates created by FreeMarkerDown can be cached!");
+        }
+
+        ((BaseTemplate) template).setCacheKey(key);
+    }
+
+    /**
+     * Removes all cached rendered contents.
+     *
+     * @since 1.0.1
+     */
+    public void clearOutputCache() {
+        outputCache.clear();
+    }
+
+    /**
+     * Get a snapshot of the rendered content cache counters.
+     *
+     * @return never {@code null}
+     * @since 1.0.1
+     */
+    public CacheStatistics getOutputCacheStatistics() {
+        return outputCache.getStatistics();
+    }
+
+    /**
+     * Set the maximum number of Markdown conversions to cache.
+     * <p>
+     * Caching is disabled by default. If enabled, the HTML converted from Markdown is cached by a 128 bit hash of
+     * the rendered Markdown, so templates rendering the same Markdown are converted only once. If the cache is full
+     * the least recently used conversions are evicted.
+     * </p>
+     *
+     * @param maxSize must not be negative, {@code 0} disables the cache
+     * @since 1.0.1
+     */
+    public void setMarkdownCacheSize(final int maxSize) {
+        markdown.setCacheSize(maxSize);
+    }
+
+    /**
+     * Get a snapshot of the Markdown conversion cache counters.
+     *
+     * @return never {@code null}
+     * @since 1.0.1
+     */
+    public CacheStatistics getMarkdownCacheStatistics() {
+        return markdown.getStatistics();
+    }
+
+    /**
+     * Set the converter used to convert Markdown to HTML.
+     * <p>
+     * By default PegDown is used. The converter is used by all templates created by this instance, also those
+     * created before. Cached Markdown conversions are removed.
+     * </p>
+     *
+     * @param converter must not be {@code null}, must be thread safe
+     * @since 1.0.1
+     */
+    public void setMarkdownConverter(final MarkdownConverter converter) {
+        markdown.setConverter(converter);
+    }
+
+    /**
+     * Switches back to the default PegDown converter after a {@link #setMarkdownConverter(MarkdownConverter) custom
+     * converter} was set.
+     * <p>
+     * The converter uses the last set {@link #setMarkdownTimeout(long, java.util.concurrent.TimeUnit) timeout}.
+     * Cached Markdown conversions are removed.
+     * </p>
+     *
+     * @since 1.0.1
+     */
+    public void useDefaultMarkdownConverter() {
+        markdown.useDefaultConverter();
+    }
+
+    /**
+     * Set the maximum time to convert the Markdown of one template.
+     * <p>
+     * PegDown needs very long to parse some pathological inputs. If the time is exceeded the
+     * {@link #setMarkdownFallback(MarkdownFallback) fallback} is used. Default is two seconds. Only applies to the
+     * default PegDown converter, not to a {@link #setMarkdownConverter(MarkdownConverter) custom converter}: A custom
+     * converter must limit its parsing time itself. If set while a custom converter is used, the timeout is kept and
+     * applied when switching back by {@link #useDefaultMarkdownConverter()}.
+     * </p>
+     *
+     * @param timeout must be greater than {@code 0} milliseconds
+     * @param unit must not be {@code null}
+     * @since 1.0.1
+     */
+    public void setMarkdownTimeout(final long timeout, final TimeUnit unit) {
+        Validate.notNull(unit, "unit");
+        markdown.setMaxParsingTime(unit.toMillis(timeout));
+    }
+
+    /**
+     * Set the maximum number of characters of Markdown to convert.
+     * <p>
+     * If a template renders more characters of Markdown, the {@link #setMarkdownFallback(MarkdownFallback) fallback}
+     * is used without parsing it. Unlimited by default.
+     * </p>
+     *
+     * @param maxInputSize must not be negative, {@code 0} for unlimited
+     * @since 1.0.1
+     */
+    public void setMarkdownMaxInputSize(final int maxInputSize) {
+        markdown.setMaxInputSize(maxInputSize);
+    }
+
+    /**
+     * Set what to do if Markdown exceeds the timeout or maximum size.
+     * <p>
+     * Default is {@link MarkdownFallback#PREFORMATTED}.
+     * </p>
+     *
+     * @param fallback must not be {@code null}
+     * @since 1.0.1
+     */
+    public void setMarkdownFallback(final MarkdownFallback fallback) {
+        markdown.setFallback(fallback);
+    }
+
+    /**
+     * Get the number of Markdown conversions which exceeded the timeout or were aborted by the converter.
+     *
+     * @return not negative
+     * @since 1.0.1
+     */
+    public long getMarkdownTimeoutCount() {
+        return markdown.getTimeouts();
+    }
+
+    /**
+     * Set the maximum number of preprocessed templates to cache.
+     * <p>
+     * Caching is disabled by default. If enabled, the output of preprocessing is cached by the template source and
+     * the applied pre processors, but only for templates whose instructions are all processed by
+     * {@link CacheablePreProcessor cacheable pre processors}. On a cache hit no pre processor is invoked. Templates
+     * with instructions for other pre processors (such as {@link PreProcessors#createKeyValueProcessor(java.util.Map)
+     * the key value processor}) are always processed, so their side outputs work as without cache.
+     * </p>
+     *
+     * @param maxSize must not be negative, {@code 0} disables the cache
+     * @since 1.0.1
+     */
+    public void setPreProcessingCacheSize(final int maxSize) {
+        preProcessorApplier.setMaxSize(maxSize);
+    }
+
+    /**
+     * Get a snapshot of the pre processing cache counters.
+     *
+     * @return never {@code null}
+     * @since 1.0.1
+     */
+    public CacheStatistics getPreProcessingCacheStatistics() {
+        return preProcessorApplier.getStatistics();
+    }
+
+    /**
+     * Set an executor to render the fragments of layouts concurrently.
+     * <p>
+     * By default the fragments of a {@link Layout} are rendered one after another before the layout itself.
+     * If an executor is set, all fragments assigned to a layout are rendered by the executor concurrently and
+     * the layout waits until all of them are finished. The thread waiting for the fragments also renders each
+     * fragment not started by the executor yet, so nested layouts may share an executor with a bounded number of
+     * threads. Interceptors may be invoked concurrently if an executor is set.
+     * </p>
+     * <p>
+     * The fragments of a layout are rendered as a group: If one fragment fails, the other fragments of the layout are
+     * cancelled and interrupted at once. On Java 21 and later an executor creating a virtual thread per task (e.g.
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}) is a good fit for fragments which wait for slow model
+     * objects, because their waits overlap without occupying platform threads.
+     * </p>
+     * <p>
+     * The executor is used by all layouts created afterwards.
+     * </p>
+     *
+     * @param executor may be {@code null} to render fragments sequentially
+     * @since 1.0.1
+     */
+    public void setFragmentExecutor(final Executor executor) {
+        fragmentExecutor = executor;
+    }
+
     /**
      * Get a copy of the registered pre processors.
      *
@@ -98,22 +471,241 @@ public final class FreeMarkerDown {
      */
     public String render(final TemplateModel template) {
         Validate.notNull(template, "template");
+        return render(template, preProcessors, events.hasInterceptors());
+    }
+
+    /**
+     * Render all given templates one after another.
+     * <p>
+     * The registered pre processors and interceptors are looked up only once for the whole batch, so pre processors
+     * and interceptors must not be registered while the batch is rendered.
+     * </p>
+     *
+     * @param templates must not be {@code null}
+     * @return never {@code null}, contents in the iteration order of the templates
+     * @since 1.0.1
+     */
+    public List<String> renderAll(final Collection<? extends TemplateModel> templates) {
+        return renderAll(templates, null);
+    }
+
+    /**
+     * Render all given templates concurrently by the given executor.
+     * <p>
+     * Works like {@link #renderAll(java.util.Collection)}, but each template is rendered by the executor. The
+     * calling thread waits until all templates are rendered and renders each template itself which was not started
+     * by the executor yet. If rendering a template fails, all other templates are cancelled, running ones are
+     * interrupted, and the failure is rethrown. Pre processors and interceptors are invoked concurrently and must be
+     * thread safe. See {@link #setFragmentExecutor(java.util.concurrent.Executor)} for virtual threads.
+     * </p>
+     *
+     * @param templates must not be {@code null}, each template must be contained only once
+     * @param executor may be {@code null} to render the templates sequentially
+     * @return never {@code null}, contents in the iteration order of the templates
+     * @throws IllegalStateException if a {@link FrontMatterProcessor} is registered and an executor is given
+     * @since 1.0.1
+     */
+    public List<String> renderAll(final Collection<? extends TemplateModel> templates, final Executor executor) {
+        Validate.notNull(templates, "templates");
+        final List<PreProcessor> processors = Lists.newArrayList(preProcessors);
+        final boolean withEvents = events.hasInterceptors();
+
+        if (null == executor) {
+            final List<String> contents = Lists.newArrayListWithCapacity(templates.size());
+
+            for (final TemplateModel template : templates) {
+                contents.add(render(Validate.notNull(template, "template"), processors, withEvents));
+            }
+
+            return contents;
+        }
+
+        rejectFrontMatterProcessors(processors);
+        final List<RenderTask> tasks = Lists.newArrayListWithCapacity(templates.size());
+
+        for (final TemplateModel template : templates) {
+            tasks.add(new RenderTask(Validate.notNull(template, "template"), processors, withEvents));
+        }
+
+        return RenderTasks.invokeAll(tasks, executor);
+    }
+
+    /**
+     * Render the given template asynchronously by the given executor.
+     * <p>
+     * The pre processors and interceptors registered when this method is called are used. Layouts render their
+     * fragments by the {@link #setFragmentExecutor(java.util.concurrent.Executor) fragment executor} as usual, so
+     * a layout waits for its fragments in the executor thread, never in the calling thread. Errors thrown while
+     * rendering are available as cause of the {@link java.util.concurrent.ExecutionException} thrown by
+     * {@link Future#get()}.
+     * </p>
+     * <p>
+     * A plain {@link Future} is returned because this library targets Java 7, which has no
+     * {@code CompletableFuture}. To compose renderings without blocking, pass a {@link RenderCallback} to
+     * {@link #renderAsync(TemplateModel, java.util.concurrent.Executor, RenderCallback)}, which on Java 8 and later
+     * may complete a {@code CompletableFuture}.
+     * </p>
+     *
+     * @param template must not be {@code null}
+     * @param executor must not be {@code null}
+     * @return never {@code null}, gives the rendered content
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the rendering
+     * @throws IllegalStateException if a {@link FrontMatterProcessor} is registered
+     * @since 1.0.1
+     */
+    public Future<String> renderAsync(final TemplateModel template, final Executor executor) {
+        return renderAsync(template, executor, null);
+    }
+
+    /**
+     * Render the given template asynchronously by the given executor and notify the callback when done.
+     * <p>
+     * Works like {@link #renderAsync(TemplateModel, java.util.concurrent.Executor)}, but instead of blocking on
+     * the returned future the caller may be notified by the executor thread.
+     * </p>
+     *
+     * @param template must not be {@code null}
+     * @param executor must not be {@code null}
+     * @param callback may be {@code null}
+     * @return never {@code null}, gives the rendered content
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the rendering
+     * @throws IllegalStateException if a {@link FrontMatterProcessor} is registered
+     * @since 1.0.1
+     */
+    public Future<String> renderAsync(
+        final TemplateModel template, final Executor executor, final RenderCallback<? super String> callback) {
+        Validate.notNull(template, "template");
+        Validate.notNull(executor, "executor");
+        final List<PreProcessor> processors = Lists.newArrayList(preProcessors);
+        rejectFrontMatterProcessors(processors);
+        final FutureTask<String> task = RenderTasks.notifying(
+            new RenderTask(template, processors, events.hasInterceptors()), callback);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Render the given template asynchronously into the given writer by the given executor.
+     * <p>
+     * Works like {@link #render(TemplateModel, java.io.Writer)}, but the rendering is done by the executor with the
+     * pre processors registered when this method is called. The writer must not be used by anyone else until the
+     * rendering is done. It is not closed. An {@link IOException} thrown by the writer is available as cause of the
+     * {@link java.util.concurrent.ExecutionException} thrown by {@link Future#get()}.
+     * </p>
+     *
+     * @param template must not be {@code null}
+     * @param out must not be {@code null}
+     * @param executor must not be {@code null}
+     * @return never {@code null}, done when the template is written
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the rendering
+     * @throws IllegalStateException if a {@link FrontMatterProcessor} is registered
+     * @since 1.0.1
+     */
+    public Future<Void> renderAsync(final TemplateModel template, final Writer out, final Executor executor) {
+        return renderAsync(template, out, executor, null);
+    }
 
+    /**
+     * Render the given template asynchronously into the given writer and notify the callback when done.
+     * <p>
+     * Works like {@link #renderAsync(TemplateModel, java.io.Writer, java.util.concurrent.Executor)}, but instead of
+     * blocking on the returned future the caller may be notified by the executor thread.
+     * </p>
+     *
+     * @param template must not be {@code null}
+     * @param out must not be {@code null}
+     * @param executor must not be {@code null}
+     * @param callback may be {@code null}
+     * @return never {@code null}, done when the template is written
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the rendering
+     * @throws IllegalStateException if a {@link FrontMatterProcessor} is registered
+     * @since 1.0.1
+     */
+    public Future<Void> renderAsync(final TemplateModel template, final Writer out, final Executor executor,
+        final RenderCallback<? super Void> callback) {
+        Validate.notNull(template, "template");
+        Validate.notNull(out, "out");
+        Validate.notNull(executor, "executor");
+        final List<PreProcessor> processors = Lists.newArrayList(preProcessors);
+        rejectFrontMatterProcessors(processors);
+        final FutureTask<Void> task = RenderTasks.notifying(new WriterTask(template, out, processors), callback);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Preprocesses and renders the given template.
+     *
+     * @param template must not be {@code null}
+     * @param processors must not be {@code null}
+     * @param withEvents whether to register the event dispatcher
+     * @return never {@code null}
+     */
+    private String render(
+        final TemplateModel template, final Collection<PreProcessor> processors, final boolean withEvents) {
+        if (withEvents) {
+            registerForEvents(template);
+        }
+
+        try {
+            preprocessTemplate(template, processors);
+            return renderTemplate(template);
+        } finally {
+            if (withEvents) {
+                unregisterForEvents(template);
+            }
+        }
+    }
+
+    /**
+     * Render the given template into the given writer.
+     * <p>
+     * Templates rendered {@link RenderOptions#WITHOUT_MARKDOWN without Markdown} are streamed directly into the
+     * writer. The writer is not closed.
+     * </p>
+     *
+     * @param template must not be {@code null}
+     * @param out must not be {@code null}
+     * @throws IOException if the writer can't be written
+     * @since 1.0.1
+     */
+    public void render(final TemplateModel template, final Writer out) throws IOException {
+        Validate.notNull(template, "template");
+        Validate.notNull(out, "out");
+        render(template, out, preProcessors);
+    }
+
+    /**
+     * Preprocesses the given template and renders it into the given writer.
+     *
+     * @param template must not be {@code null}
+     * @param out must not be {@code null}
+     * @param processors must not be {@code null}
+     * @throws IOException if the writer can't be written
+     */
+    private void render(final TemplateModel template, final Writer out, final Collection<PreProcessor> processors)
+        throws IOException {
         registerForEvents(template);
-        preprocessTemplate(template);
-        final String content = renderTemplate(template);
-        unregisterForEvents(template);
 
-        return content;
+        try {
+            preprocessTemplate(template, processors);
+            renderTemplate(template, out);
+        } finally {
+            unregisterForEvents(template);
+        }
     }
 
     /**
      * Register the event dispatcher to receive events from the template model.
+     * <p>
+     * The dispatcher is only registered if there are interceptors, so that templates without any event consumer may
+     * be streamed.
+     * </p>
      *
      * @param template must not be {@code null}
      */
     private void registerForEvents(final TemplateModel template) {
-        if (template instanceof EventProducer) {
+        if (events.hasInterceptors() && template instanceof EventProducer) {
             ((EventProducer) template).register(events);
         }
     }
@@ -130,15 +722,57 @@ public final class FreeMarkerDown {
     }
 
     /**
-     * Execute all registered preprocessors.
+     * Execute the given preprocessors.
      *
      * @param template must not be {@code null}
+     * @param processors must not be {@code null}
      */
-    private void preprocessTemplate(final TemplateModel template) {
+    private void preprocessTemplate(final TemplateModel template, final Collection<PreProcessor> processors) {
         Validate.notNull(template, "template");
 
-        for (final PreProcessor preProcessor : preProcessors) {
-            template.apply(preProcessor);
+        if (processors.isEmpty()) {
+            return;
+        }
+
+        final List<FrontMatterProcessor> frontMatters = Lists.newArrayList();
+
+        try {
+            for (final PreProcessor preProcessor : processors) {
+                if (preProcessor instanceof FrontMatterProcessor) {
+                    // Otherwise a template without block would expose the front matter of the previous template.
+                    ((FrontMatterProcessor) preProcessor).begin();
+                    frontMatters.add((FrontMatterProcessor) preProcessor);
+                }
+            }
+
+            if (template instanceof BaseTemplate) {
+                // Our own templates apply all processors in one pass.
+                ((BaseTemplate) template).applyAll(processors);
+                return;
+            }
+
+            for (final PreProcessor preProcessor : processors) {
+                template.apply(preProcessor);
+            }
+        } finally {
+            for (final FrontMatterProcessor frontMatter : frontMatters) {
+                frontMatter.end();
+            }
+        }
+    }
+
+    /**
+     * Rejects front matter processors for concurrent rendering.
+     *
+     * @param processors must not be {@code null}
+     * @throws IllegalStateException if one of the processors is a {@link FrontMatterProcessor}
+     */
+    private static void rejectFrontMatterProcessors(final Collection<PreProcessor> processors) {
+        for (final PreProcessor preProcessor : processors) {
+            if (preProcessor instanceof FrontMatterProcessor) {
+                throw new IllegalStateException(
+                    "Front matter processors can't be used for concurrent rendering, use extract instead!");
+            }
         }
     }
 
@@ -156,6 +790,150 @@ public final class FreeMarkerDown {
         return rendered == null ? "" : rendered;
     }
 
+    /**
+     * Render FreeMarker templates into the given writer.
+     * <p>
+     * Only templates created by this library can be streamed. Other implementations are rendered into a string which
+     * is written afterwards.
+     * </p>
+     *
+     * @param template must not be {@code null}
+     * @param out must not be {@code null}
+     * @throws IOException if the writer can't be written
+     */
+    private void renderTemplate(final TemplateModel template, final Writer out) throws IOException {
+        if (template instanceof BaseTemplate) {
+            ((BaseTemplate) template).render(out);
+        } else {
+            out.write(renderTemplate(template));
+        }
+    }
+
+    /**
+     * Applies the given processor to the first instruction for its target without rendering the template.
+     * <p>
+     * Only the instruction is passed to the processor, e.g. to collect the key value pairs of many documents without
+     * running FreeMarker or converting Markdown. The processor is not registered.
+     * </p>
+     *
+     * @param <T> type of processor
+     * @param template must not be {@code null}
+     * @param processor must not be {@code null}
+     * @return the passed in processor
+     * @since 1.0.1
+     */
+    public <T extends PreProcessor> T extract(final String template, final T processor) {
+        Validate.notNull(template, "template");
+        Validate.notNull(processor, "processor");
+        final String instruction = PreProcessorApplierImpl.findInstruction(template, processor.getTarget(), true);
+
+        if (null != instruction) {
+            processor.process(instruction);
+        }
+
+        return processor;
+    }
+
+    /**
+     * Applies the given processor to the first instruction for its target in a template file.
+     * <p>
+     * The file is read in chunks of {@value #EXTRACTION_CHUNK_SIZE} bytes and decoded with the configured encoding
+     * only until the instruction is closed. So for instructions at the beginning of large documents only the first
+     * few chunks are read. If the file contains no instruction for the target it is read completely. The template
+     * file cache is not used.
+     * </p>
+     *
+     * @param <T> type of processor
+     * @param template must not be {@code null}
+     * @param processor must not be {@code null}
+     * @return the passed in processor
+     * @throws IOException if file can't be read
+     * @since 1.0.1
+     */
+    public <T extends PreProcessor> T extract(final Path template, final T processor) throws IOException {
+        Validate.notNull(template, "template");
+        Validate.notNull(processor, "processor");
+
+        try (final FileChannel channel = FileChannel.open(template)) {
+            return extract(channel, Charset.forName(freeMarkerConfig.getDefaultEncoding()), processor);
+        }
+    }
+
+    /**
+     * Applies the given processor to the first instruction for its target read from a channel.
+     * <p>
+     * Only chunks of {@link #EXTRACTION_CHUNK_SIZE} bytes are read from the channel until the instruction is
+     * closed. The channel is not closed.
+     * </p>
+     *
+     * @param <T> type of processor
+     * @param channel must not be {@code null}
+     * @param charset must not be {@code null}
+     * @param processor must not be {@code null}
+     * @return the passed in processor
+     * @throws IOException if channel can't be read
+     */
+    static <T extends PreProcessor> T extract(
+        final ReadableByteChannel channel, final Charset charset, final T processor) throws IOException {
+        final CharsetDecoder decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final ByteBuffer bytes = ByteBuffer.allocate(EXTRACTION_CHUNK_SIZE);
+        final CharBuffer chars = CharBuffer.allocate(EXTRACTION_CHUNK_SIZE);
+        final StringBuilder buffer = new StringBuilder();
+        int nextSearch = EXTRACTION_CHUNK_SIZE;
+
+        while (true) {
+            final boolean complete = channel.read(bytes) < 0;
+            bytes.flip();
+            CoderResult result;
+
+            do {
+                result = decoder.decode(bytes, chars, complete);
+                drain(chars, buffer);
+            } while (result.isOverflow());
+
+            bytes.compact();
+
+            if (complete) {
+                while (decoder.flush(chars).isOverflow()) {
+                    drain(chars, buffer);
+                }
+
+                drain(chars, buffer);
+            }
+
+            // Search again only after the buffer doubled, so that the whole file is scanned in linear time.
+            if (complete || buffer.length() >= nextSearch) {
+                final String instruction = PreProcessorApplierImpl.findInstruction(
+                    buffer.toString(), processor.getTarget(), complete);
+
+                if (null != instruction) {
+                    processor.process(instruction);
+                    return processor;
+                }
+
+                if (complete) {
+                    return processor;
+                }
+
+                nextSearch = buffer.length() * 2;
+            }
+        }
+    }
+
+    /**
+     * Appends all decoded chars to the buffer and clears the char buffer.
+     *
+     * @param chars must not be {@code null}
+     * @param buffer must not be {@code null}
+     */
+    private static void drain(final CharBuffer chars, final StringBuilder buffer) {
+        chars.flip();
+        buffer.append(chars);
+        chars.clear();
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(this.preProcessors);
@@ -185,7 +963,7 @@ public final class FreeMarkerDown {
      * @return never {@code null}, always new instance
      */
     public Fragment createFragemnt(final String template, final String name, final RenderOptions... options) {
-        return new FragmentImpl(
+        return configure(new FragmentImpl(
             template,
             freeMarkerConfig.getDefaultEncoding(),
             freeMarkerConfig,
@@ -193,7 +971,7 @@ public final class FreeMarkerDown {
                 ? Collections.<RenderOptions>emptySet()
                 : Sets.newHashSet(options),
             name
-        );
+        ));
     }
 
     /**
@@ -230,7 +1008,7 @@ public final class FreeMarkerDown {
      * @return never {@code null}, always new instance
      */
     public Layout createLayout(final String template, final String name, final RenderOptions... options) {
-        return new LayoutImpl(
+        final LayoutImpl layout = configure(new LayoutImpl(
             template,
             freeMarkerConfig.getDefaultEncoding(),
             freeMarkerConfig,
@@ -238,7 +1016,9 @@ public final class FreeMarkerDown {
                 ? Collections.<RenderOptions>emptySet()
                 : Sets.newHashSet(options),
             name
-        );
+        ));
+        layout.setFragmentExecutor(fragmentExecutor);
+        return layout;
     }
 
     /**
@@ -266,8 +1046,26 @@ public final class FreeMarkerDown {
         return createLayout(read(template), name, options);
     }
 
+    /**
+     * Injects the shared services into a newly created template.
+     *
+     * @param <T> type of template
+     * @param template must not be {@code null}
+     * @return the passed in template
+     */
+    private <T extends BaseTemplate> T configure(final T template) {
+        template.setTemplateCache(templateCache);
+        template.setOutputCache(outputCache);
+        template.setPreProcessorApplier(preProcessorApplier);
+        template.setMarkdownProcessor(markdown);
+        return template;
+    }
+
     /**
      * Read file into string with configured encoding.
+     * <p>
+     * The file is only read if it is not cached or was modified.
+     * </p>
      *
      * @param template must not be {@code null}
      * @return never {@code null}
@@ -275,7 +1073,7 @@ public final class FreeMarkerDown {
      */
     private String read(final Path template) throws IOException {
         Validate.notNull(template, "template");
-        return new String(Files.readAllBytes(template), freeMarkerConfig.getDefaultEncoding());
+        return templateFiles.read(template, freeMarkerConfig.getDefaultEncoding());
     }
 
     /**
@@ -308,4 +1106,83 @@ public final class FreeMarkerDown {
         return new FreeMarker().createConfiguration(encoding);
     }
 
+    /**
+     * Renders one template with given pre processors.
+     */
+    private final class RenderTask implements Callable<String> {
+
+        /**
+         * The template to render.
+         */
+        private final TemplateModel template;
+        /**
+         * Pre processors to apply.
+         */
+        private final Collection<PreProcessor> processors;
+        /**
+         * Whether to register the event dispatcher.
+         */
+        private final boolean withEvents;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param template must not be {@code null}
+         * @param processors must not be {@code null}
+         * @param withEvents whether to register the event dispatcher
+         */
+        RenderTask(final TemplateModel template, final Collection<PreProcessor> processors, final boolean withEvents) {
+            super();
+            this.template = Validate.notNull(template, "template");
+            this.processors = Validate.notNull(processors, "processors");
+            this.withEvents = withEvents;
+        }
+
+        @Override
+        public String call() {
+            return render(template, processors, withEvents);
+        }
+
+    }
+
+    /**
+     * Renders one template into a writer.
+     */
+    private final class WriterTask implements Callable<Void> {
+
+        /**
+         * The template to render.
+         */
+        private final TemplateModel template;
+        /**
+         * Where to write the template.
+         */
+        private final Writer out;
+        /**
+         * Pre processors to apply.
+         */
+        private final Collection<PreProcessor> processors;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param template must not be {@code null}
+         * @param out must not be {@code null}
+         * @param processors must not be {@code null}
+         */
+        WriterTask(final TemplateModel template, final Writer out, final Collection<PreProcessor> processors) {
+            super();
+            this.template = Validate.notNull(template, "template");
+            this.out = Validate.notNull(out, "out");
+            this.processors = Validate.notNull(processors, "processors");
+        }
+
+        @Override
+        public Void call() throws IOException {
+            render(template, out, processors);
+            return null;
+        }
+
+    }
+
 }
@@ -0,0 +1,658 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Lists;
+import de.weltraumschaf.commons.validate.Validate;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateBooleanModel;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateDateModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelIterator;
+import freemarker.template.TemplateNumberModel;
+import freemarker.template.TemplateScalarModel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Typed key value pairs parsed from a front matter block.
+ * <p>
+ * The values are typed once when the front matter is created:
+ * </p>
+ * <ul>
+ * <li>{@code true} and {@code false} are booleans,</li>
+ * <li>integers like {@code 42} or {@code -3} are numbers stored as {@code long},</li>
+ * <li>decimals like {@code 3.14} are numbers stored as {@code double},</li>
+ * <li>dates like {@code 2015-01-31} are dates in the default time zone,</li>
+ * <li>everything else is text.</li>
+ * </ul>
+ * <p>
+ * Numbers are only recognized in their canonical form, so e.g. {@code 007} or {@code 1.50} remain text. Dates
+ * have no time because the key value parser ends a value at the next colon. Every value may also be read as a
+ * {@link #getList(java.lang.String) comma separated list}. Dates and lists are parsed on first access.
+ * </p>
+ * <p>
+ * The front matter can be assigned as variable and is used by FreeMarker as hash without wrapping, so also
+ * {@code ?keys} and {@code ?values} work. Each value is also a string with the original text. Text values are only
+ * strings, so lists are split explicitly in the template:
+ * </p>
+ * <pre>
+ * &lt;#if !meta.draft&gt;
+ *   ${meta.title} (${meta.published?string("yyyy")})
+ *   &lt;#list meta.keywords?split(",") as keyword&gt;${keyword?trim} &lt;/#list&gt;
+ * &lt;/#if&gt;
+ * </pre>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@Immutable
+public final class FrontMatter implements TemplateHashModelEx {
+
+    /**
+     * Front matter without any key.
+     */
+    static final FrontMatter EMPTY = new FrontMatter(Collections.<String, String>emptyMap());
+
+    /**
+     * Separates list items.
+     */
+    private static final char LIST_SEPARATOR = ',';
+    /**
+     * Maximum number of digits which always fit into a {@code long} or {@code double} without loss.
+     */
+    private static final int MAX_DIGITS = 15;
+
+    /**
+     * Sorted and interned keys.
+     */
+    private final String[] keys;
+    /**
+     * Values in order of the {@link #keys}.
+     */
+    private final Value[] values;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param pairs must not be {@code null}
+     */
+    FrontMatter(final Map<String, String> pairs) {
+        super();
+        Validate.notNull(pairs, "pairs");
+        keys = pairs.keySet().toArray(new String[pairs.size()]);
+        Arrays.sort(keys);
+        values = new Value[keys.length];
+
+        for (int i = 0; i < keys.length; ++i) {
+            values[i] = Value.parse(Validate.notNull(pairs.get(keys[i]), "value"));
+            keys[i] = keys[i].intern();
+        }
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == keys.length;
+    }
+
+    /**
+     * Get all keys in natural order.
+     *
+     * @return never {@code null}, unmodifiable
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * Whether there is a value for the given key.
+     *
+     * @param key may be {@code null}
+     * @return {@code true} if the key exists, else {@code false}
+     */
+    public boolean containsKey(final String key) {
+        return null != find(key);
+    }
+
+    /**
+     * Get the original text of a value.
+     *
+     * @param key may be {@code null}
+     * @return {@code null} if the key does not exist
+     */
+    public String getString(final String key) {
+        final Value value = find(key);
+        return null == value ? null : value.getAsString();
+    }
+
+    /**
+     * Get an integer value.
+     *
+     * @param key may be {@code null}
+     * @param defaultValue returned if the key does not exist or the value is no integer
+     * @return the value
+     */
+    public long getLong(final String key, final long defaultValue) {
+        final Value value = find(key);
+        return value instanceof LongValue ? ((LongValue) value).value : defaultValue;
+    }
+
+    /**
+     * Get a numeric value.
+     *
+     * @param key may be {@code null}
+     * @param defaultValue returned if the key does not exist or the value is no number
+     * @return the value
+     */
+    public double getDouble(final String key, final double defaultValue) {
+        final Value value = find(key);
+
+        if (value instanceof LongValue) {
+            return ((LongValue) value).value;
+        }
+
+        return value instanceof DoubleValue ? ((DoubleValue) value).value : defaultValue;
+    }
+
+    /**
+     * Get a boolean value.
+     *
+     * @param key may be {@code null}
+     * @param defaultValue returned if the key does not exist or the value is no boolean
+     * @return the value
+     */
+    public boolean getBoolean(final String key, final boolean defaultValue) {
+        final Value value = find(key);
+        return value instanceof BooleanValue ? ((BooleanValue) value).getAsBoolean() : defaultValue;
+    }
+
+    /**
+     * Get a date value.
+     *
+     * @param key may be {@code null}
+     * @return {@code null} if the key does not exist or the value is no date, always new instance
+     */
+    public Date getDate(final String key) {
+        final Value value = find(key);
+        return value instanceof DateValue ? ((DateValue) value).getAsDate() : null;
+    }
+
+    /**
+     * Get a value as comma separated list.
+     * <p>
+     * The items are trimmed and empty items are skipped.
+     * </p>
+     *
+     * @param key may be {@code null}
+     * @return never {@code null}, empty if the key does not exist, unmodifiable
+     */
+    public List<String> getList(final String key) {
+        final Value value = find(key);
+        return null == value ? Collections.<String>emptyList() : value.getItems();
+    }
+
+    @Override
+    public TemplateModel get(final String key) {
+        return find(key);
+    }
+
+    @Override
+    public TemplateCollectionModel keys() {
+        final TemplateModel[] models = new TemplateModel[keys.length];
+
+        for (int i = 0; i < keys.length; ++i) {
+            models[i] = new SimpleScalar(keys[i]);
+        }
+
+        return new ModelCollection(models);
+    }
+
+    @Override
+    public TemplateCollectionModel values() {
+        return new ModelCollection(values);
+    }
+
+    /**
+     * Finds the value for a key by binary search.
+     *
+     * @param key may be {@code null}
+     * @return {@code null} if the key does not exist
+     */
+    private Value find(final String key) {
+        if (null == key) {
+            return null;
+        }
+
+        final int index = Arrays.binarySearch(keys, key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(keys) ^ Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof FrontMatter)) {
+            return false;
+        }
+
+        final FrontMatter other = (FrontMatter) obj;
+        return Arrays.equals(keys, other.keys) && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder("FrontMatter{");
+
+        for (int i = 0; i < keys.length; ++i) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+
+            buffer.append(keys[i]).append('=').append(values[i].getAsString());
+        }
+
+        return buffer.append('}').toString();
+    }
+
+    /**
+     * Whether the text is an integer in canonical form.
+     *
+     * @param text must not be {@code null}
+     * @return {@code true} if it can be parsed as {@code long} and formatted to the same text
+     */
+    private static boolean isInteger(final String text) {
+        final int begin = text.startsWith("-") ? 1 : 0;
+        final int length = text.length() - begin;
+
+        if (length < 1 || length > MAX_DIGITS || !isDigits(text, begin, text.length())) {
+            return false;
+        }
+
+        // No leading zeros and no negative zero.
+        return '0' != text.charAt(begin) || (1 == length && 0 == begin);
+    }
+
+    /**
+     * Whether the text is a decimal in canonical form.
+     *
+     * @param text must not be {@code null}
+     * @return {@code true} if integer part is canonical and the fraction has no trailing zeros
+     */
+    private static boolean isDecimal(final String text) {
+        final int point = text.indexOf('.');
+
+        if (point < 1 || point == text.length() - 1 || text.length() > MAX_DIGITS + 1) {
+            return false;
+        }
+
+        final String integer = text.substring(0, point);
+
+        if (!isInteger(integer) && !"-0".equals(integer)) {
+            return false;
+        }
+
+        return isDigits(text, point + 1, text.length()) && '0' != text.charAt(text.length() - 1);
+    }
+
+    /**
+     * Whether the text is a valid date in the format {@code yyyy-MM-dd}.
+     *
+     * @param text must not be {@code null}
+     * @return {@code true} if the text is a date
+     */
+    private static boolean isDate(final String text) {
+        if (10 != text.length() || '-' != text.charAt(4) || '-' != text.charAt(7)
+            || !isDigits(text, 0, 4) || !isDigits(text, 5, 7) || !isDigits(text, 8, 10)) {
+            return false;
+        }
+
+        final int year = Integer.parseInt(text.substring(0, 4));
+        final int month = Integer.parseInt(text.substring(5, 7));
+        final int day = Integer.parseInt(text.substring(8, 10));
+
+        if (month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+
+        final boolean leapYear = (0 == year % 4 && 0 != year % 100) || 0 == year % 400;
+        final int[] daysOfMonth = {31, leapYear ? 29 : 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+        return day <= daysOfMonth[month - 1];
+    }
+
+    /**
+     * Whether the range contains only ASCII digits.
+     *
+     * @param text must not be {@code null}
+     * @param begin index of first character
+     * @param end index after last character
+     * @return {@code true} if only digits, else {@code false}
+     */
+    private static boolean isDigits(final String text, final int begin, final int end) {
+        for (int i = begin; i < end; ++i) {
+            final char c = text.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * A value which is also its original text.
+     */
+    private abstract static class Value implements TemplateScalarModel {
+
+        /**
+         * Original text.
+         */
+        private final String text;
+        /**
+         * Lazily split list items.
+         */
+        private volatile List<String> items;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param text must not be {@code null}
+         */
+        Value(final String text) {
+            super();
+            this.text = text;
+        }
+
+        /**
+         * Creates the value for the type of the given text.
+         *
+         * @param text must not be {@code null}
+         * @return never {@code null}
+         */
+        static Value parse(final String text) {
+            if ("true".equals(text) || "false".equals(text)) {
+                return new BooleanValue(text);
+            }
+
+            if (isInteger(text)) {
+                return new LongValue(text);
+            }
+
+            if (isDecimal(text)) {
+                return new DoubleValue(text);
+            }
+
+            if (isDate(text)) {
+                return new DateValue(text);
+            }
+
+            return new TextValue(text);
+        }
+
+        @Override
+        public final String getAsString() {
+            return text;
+        }
+
+        /**
+         * Get the comma separated items of the text.
+         *
+         * @return never {@code null}, unmodifiable
+         */
+        final List<String> getItems() {
+            List<String> result = items;
+
+            if (null == result) {
+                result = Collections.unmodifiableList(split(text));
+                items = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Splits the text at the list separator.
+         *
+         * @param text must not be {@code null}
+         * @return never {@code null}
+         */
+        private static List<String> split(final String text) {
+            final List<String> result = Lists.newArrayList();
+            int begin = 0;
+
+            while (begin <= text.length()) {
+                int end = text.indexOf(LIST_SEPARATOR, begin);
+
+                if (end < 0) {
+                    end = text.length();
+                }
+
+                final String item = text.substring(begin, end).trim();
+
+                if (!item.isEmpty()) {
+                    result.add(item);
+                }
+
+                begin = end + 1;
+            }
+
+            return result;
+        }
+
+        @Override
+        public final int hashCode() {
+            return text.hashCode();
+        }
+
+        @Override
+        public final boolean equals(final Object obj) {
+            // All values are typed by their text, so the text determines equality.
+            return obj instanceof Value && text.equals(((Value) obj).text);
+        }
+
+        @Override
+        public final String toString() {
+            return text;
+        }
+
+    }
+
+    /**
+     * Text value.
+     */
+    private static final class TextValue extends Value {
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param text must not be {@code null}
+         */
+        TextValue(final String text) {
+            super(text);
+        }
+
+    }
+
+    /**
+     * Boolean value.
+     */
+    private static final class BooleanValue extends Value implements TemplateBooleanModel {
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param text must be {@code true} or {@code false}
+         */
+        BooleanValue(final String text) {
+            super(text);
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            return "true".equals(getAsString());
+        }
+
+    }
+
+    /**
+     * Integer value.
+     */
+    private static final class LongValue extends Value implements TemplateNumberModel {
+
+        /**
+         * Parsed value.
+         */
+        private final long value;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param text must be a canonical integer
+         */
+        LongValue(final String text) {
+            super(text);
+            this.value = Long.parseLong(text);
+        }
+
+        @Override
+        public Number getAsNumber() {
+            return value;
+        }
+
+    }
+
+    /**
+     * Decimal value.
+     */
+    private static final class DoubleValue extends Value implements TemplateNumberModel {
+
+        /**
+         * Parsed value.
+         */
+        private final double value;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param text must be a canonical decimal
+         */
+        DoubleValue(final String text) {
+            super(text);
+            this.value = Double.parseDouble(text);
+        }
+
+        @Override
+        public Number getAsNumber() {
+            return value;
+        }
+
+    }
+
+    /**
+     * Date value without time.
+     */
+    private static final class DateValue extends Value implements TemplateDateModel {
+
+        /**
+         * Lazily parsed milliseconds, {@code null} until first access.
+         */
+        private volatile Long time;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param text must be a valid date in the format {@code yyyy-MM-dd}
+         */
+        DateValue(final String text) {
+            super(text);
+        }
+
+        @Override
+        public Date getAsDate() {
+            Long result = time;
+
+            if (null == result) {
+                final String text = getAsString();
+                final GregorianCalendar calendar = new GregorianCalendar();
+                calendar.clear();
+                calendar.set(
+                    Integer.parseInt(text.substring(0, 4)),
+                    Integer.parseInt(text.substring(5, 7)) - 1,
+                    Integer.parseInt(text.substring(8, 10)));
+                result = calendar.getTimeInMillis();
+                time = result;
+            }
+
+            return new Date(result);
+        }
+
+        @Override
+        public int getDateType() {
+            return DATE;
+        }
+
+    }
+
+    /**
+     * Iterable models of the keys or values.
+     */
+    @Immutable
+    private static final class ModelCollection implements TemplateCollectionModel {
+
+        /**
+         * Iterated models, not modified.
+         */
+        private final TemplateModel[] models;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param models must not be {@code null}
+         */
+        ModelCollection(final TemplateModel[] models) {
+            super();
+            this.models = models;
+        }
+
+        @Override
+        public TemplateModelIterator iterator() {
+            return new TemplateModelIterator() {
+
+                /**
+                 * Index of the next model.
+                 */
+                private int next;
+
+                @Override
+                public TemplateModel next() {
+                    if (next >= models.length) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return models[next++];
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next < models.length;
+                }
+            };
+        }
+
+    }
+
+}
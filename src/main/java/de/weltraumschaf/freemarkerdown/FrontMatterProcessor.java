@@ -0,0 +1,150 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Maps;
+import de.weltraumschaf.commons.validate.Validate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Parses a key value block into a typed {@link FrontMatter}.
+ * <p>
+ * The block has the same format as for the {@link PreProcessors#createKeyValueProcessor(java.util.Map) key value
+ * processor}. The front matter is the one of the last rendered template, or empty if that template had no block:
+ * {@link FreeMarkerDown} resets the processor before it processes a template. If the same block is processed again
+ * the previously parsed front matter is reused without parsing, so the front matter may be cached along with the
+ * template.
+ * </p>
+ * <p>
+ * Because the processor holds the front matter of one template, it can't be used for concurrent rendering:
+ * {@link FreeMarkerDown#renderAll(java.util.Collection, java.util.concurrent.Executor) Concurrent batches} and
+ * {@link FreeMarkerDown#renderAsync(TemplateModel, java.util.concurrent.Executor) asynchronous renderings} throw an
+ * {@link IllegalStateException} if it is registered, and so does a rendering which starts preprocessing while
+ * another thread preprocesses with the same processor. Use
+ * {@link FreeMarkerDown#extract(java.nio.file.Path, PreProcessor) extract} with a new processor per template to
+ * read the front matter of many templates concurrently.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@NotThreadSafe
+public final class FrontMatterProcessor implements PreProcessor {
+
+    /**
+     * Default target.
+     */
+    private static final String TARGET = "fdm-keyvalue";
+
+    /**
+     * Target to listen for.
+     */
+    private final String target;
+    /**
+     * Holds the pairs of the last parsed block.
+     */
+    private final Map<String, String> pairs = Maps.newHashMap();
+    /**
+     * Parses the pairs.
+     */
+    private final KeyValueProcessor parser;
+    /**
+     * Last parsed block, {@code null} if none parsed yet.
+     */
+    private String parsedInput;
+    /**
+     * Front matter of the last parsed block.
+     */
+    private FrontMatter parsed = FrontMatter.EMPTY;
+    /**
+     * Front matter of the current template.
+     */
+    private FrontMatter frontMatter = FrontMatter.EMPTY;
+    /**
+     * Whether a template is processed right now.
+     */
+    private final AtomicBoolean processing = new AtomicBoolean();
+
+    /**
+     * Convenience constructor with default target.
+     */
+    FrontMatterProcessor() {
+        this(TARGET);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param target must not be {@code null} or empty
+     */
+    FrontMatterProcessor(final String target) {
+        super();
+        this.target = Validate.notEmpty(target, "target");
+        this.parser = new KeyValueProcessor(pairs, target);
+    }
+
+    @Override
+    public String process(final String input) {
+        Validate.notNull(input, "input");
+
+        if (!input.equals(parsedInput)) {
+            pairs.clear();
+            parser.process(input);
+            parsed = new FrontMatter(pairs);
+            parsedInput = input;
+        }
+
+        frontMatter = parsed;
+        return "";
+    }
+
+    /**
+     * Forgets the front matter before a template is processed.
+     * <p>
+     * The last parsed block is kept, so processing it again does not parse it again. Must be followed by
+     * {@link #end()} when the template is processed.
+     * </p>
+     *
+     * @throws IllegalStateException if another template is processed right now
+     */
+    void begin() {
+        if (!processing.compareAndSet(false, true)) {
+            throw new IllegalStateException("Front matter processor is already used by another rendering!");
+        }
+
+        frontMatter = FrontMatter.EMPTY;
+    }
+
+    /**
+     * Marks the processing of the current template as done.
+     */
+    void end() {
+        processing.set(false);
+    }
+
+    /**
+     * Get the front matter of the last rendered template.
+     *
+     * @return never {@code null}, empty if the template had no block
+     */
+    public FrontMatter getFrontMatter() {
+        return frontMatter;
+    }
+
+    @Override
+    public String getTarget() {
+        return target;
+    }
+
+    @Override
+    public boolean hasWarnings() {
+        return parser.hasWarnings();
+    }
+
+    @Override
+    public Collection<String> getWarnings() {
+        return parser.getWarnings();
+    }
+
+}
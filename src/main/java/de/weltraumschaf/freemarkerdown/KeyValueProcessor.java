@@ -5,6 +5,7 @@ import de.weltraumschaf.commons.validate.Validate;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import net.jcip.annotations.Immutable;
 import net.jcip.annotations.NotThreadSafe;
 
 /**
@@ -39,15 +40,22 @@ final class KeyValueProcessor implements PreProcessor {
      *
      * Example: {@code key ":" value NL}
      */
-    private static final String SPLIT_TOKEN = ":";
+    private static final char SPLIT_TOKEN = ':';
     /**
      * Start of single line comment.
      */
     private static final String COMMENT_TOKEN = "//";
+    /**
+     * Ends a line.
+     */
+    private static final char NEW_LINE = '\n';
     /**
      * Collects warnings during processing.
+     * <p>
+     * Warnings are only formatted if they are requested.
+     * </p>
      */
-    private final Collection<String> warnings = Lists.newArrayList();
+    private final Collection<Warning> warnings = Lists.newArrayList();
     /**
      * Collects the found key value pairs.
      */
@@ -84,7 +92,13 @@ final class KeyValueProcessor implements PreProcessor {
 
     @Override
     public Collection<String> getWarnings() {
-        return Collections.unmodifiableCollection(warnings);
+        final Collection<String> formatted = Lists.newArrayListWithCapacity(warnings.size());
+
+        for (final Warning warning : warnings) {
+            formatted.add(warning.toString());
+        }
+
+        return Collections.unmodifiableCollection(formatted);
     }
 
     @Override
@@ -92,58 +106,230 @@ final class KeyValueProcessor implements PreProcessor {
         return target;
     }
 
+    /**
+     * Parses the key value pairs line by line in one pass over the characters of the input.
+     * <p>
+     * Lines are separated by {@code \n}; surrounding white space including {@code \r} is ignored. The value ends at
+     * the next split token, if any.
+     * </p>
+     *
+     * @param input must not be {@code null}
+     * @return always empty string
+     */
     @Override
     public String process(final String input) {
         Validate.notNull(input, "input");
         warnings.clear();
+        int lineBegin = 0;
 
-        for (final String line : input.split(Defaults.DEFAULT_NEW_LINE.getValue())) {
-            if (line.trim().isEmpty()) {
-                continue; // Ignore empty lines.
-            }
+        while (lineBegin < input.length()) {
+            int lineEnd = input.indexOf(NEW_LINE, lineBegin);
 
-            if (line.trim().startsWith(COMMENT_TOKEN)) {
-                continue; // Ignore comments.
+            if (lineEnd < 0) {
+                lineEnd = input.length();
             }
 
-            if (!line.contains(SPLIT_TOKEN)) {
-                warnings.add(String.format("Malformed line '%s'! Missing split token '%s'. Use format 'key %s value'.",
-                        line, SPLIT_TOKEN, SPLIT_TOKEN));
-                continue;
-            }
+            processLine(input, lineBegin, lineEnd);
+            lineBegin = lineEnd + 1;
+        }
 
-            final String[] tokens = line.split(SPLIT_TOKEN);
+        return "";
+    }
 
-            if (tokens.length == 0) {
-                warnings.add(String.format("No key given: '%s'! Skipping line.", line));
-                continue;
-            }
+    /**
+     * Puts the key value pair of one line into the result.
+     *
+     * @param input must not be {@code null}
+     * @param lineBegin index of the first character of the line
+     * @param lineEnd index after the last character of the line
+     */
+    private void processLine(final String input, final int lineBegin, final int lineEnd) {
+        final int contentBegin = skipWhitespace(input, lineBegin, lineEnd);
 
-            final String name = tokens[0].trim();
+        if (contentBegin == lineEnd) {
+            return; // Ignore empty lines.
+        }
 
-            if (name.isEmpty()) {
-                warnings.add(String.format("Empty key given: '%s'! Skipping line.", line));
-                continue;
-            }
+        if (input.startsWith(COMMENT_TOKEN, contentBegin)) {
+            return; // Ignore comments.
+        }
+
+        final int split = indexOf(input, SPLIT_TOKEN, lineBegin, lineEnd);
+
+        if (split < 0) {
+            warnings.add(new Warning(
+                "Malformed line '%s'! Missing split token '" + SPLIT_TOKEN + "'. Use format 'key "
+                    + SPLIT_TOKEN + " value'.",
+                input, lineBegin, lineEnd));
+            return;
+        }
+
+        final int valueBegin = skip(input, SPLIT_TOKEN, split, lineEnd);
+
+        if (split == lineBegin && valueBegin == lineEnd) {
+            warnings.add(new Warning("No key given: '%s'! Skipping line.", input, lineBegin, lineEnd));
+            return;
+        }
+
+        final int nameEnd = trimEnd(input, contentBegin, split);
+
+        if (contentBegin == nameEnd) {
+            warnings.add(new Warning("Empty key given: '%s'! Skipping line.", input, lineBegin, lineEnd));
+            return;
+        }
 
-            final String value;
+        final String name = input.substring(contentBegin, nameEnd);
 
-            if (tokens.length == 1) {
-                warnings.add(String.format("No value given: '%s'! Set vlaue empty.", name));
-                value = "";
-            } else {
-                value = tokens[1].trim();
+        if (valueBegin == lineEnd) {
+            warnings.add(new Warning("No value given: '%s'! Set vlaue empty.", name));
+            result.put(name, "");
+            return;
+        }
+
+        int valueEnd = indexOf(input, SPLIT_TOKEN, split + 1, lineEnd);
+
+        if (valueEnd < 0) {
+            valueEnd = lineEnd;
+        }
+
+        final int trimmedBegin = skipWhitespace(input, split + 1, valueEnd);
+        final int trimmedEnd = trimEnd(input, trimmedBegin, valueEnd);
+
+        if (trimmedBegin == trimmedEnd) {
+            warnings.add(new Warning("Empty value given: '%s'! Set vlaue empty.", name));
+        }
+
+        result.put(name, input.substring(trimmedBegin, trimmedEnd));
+    }
 
-                if (value.isEmpty()) {
-                    warnings.add(String.format("Empty value given: '%s'! Set vlaue empty.", name));
-                }
+    /**
+     * Finds the given character in the range.
+     *
+     * @param input must not be {@code null}
+     * @param c character to find
+     * @param begin index to start at
+     * @param end index to stop before
+     * @return index of the character, or {@code -1} if not found
+     */
+    private static int indexOf(final String input, final char c, final int begin, final int end) {
+        for (int i = begin; i < end; ++i) {
+            if (c == input.charAt(i)) {
+                return i;
             }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Skips all subsequent occurrences of the given character.
+     *
+     * @param input must not be {@code null}
+     * @param c character to skip
+     * @param begin index to start at
+     * @param end index to stop before
+     * @return index of the first other character, or end
+     */
+    private static int skip(final String input, final char c, final int begin, final int end) {
+        int i = begin;
 
-            result.put(name, value);
+        while (i < end && c == input.charAt(i)) {
+            ++i;
         }
 
-        return "";
+        return i;
+    }
+
+    /**
+     * Skips white space like {@link String#trim()}.
+     *
+     * @param input must not be {@code null}
+     * @param begin index to start at
+     * @param end index to stop before
+     * @return index of the first non white space character, or end
+     */
+    private static int skipWhitespace(final String input, final int begin, final int end) {
+        int i = begin;
+
+        while (i < end && input.charAt(i) <= ' ') {
+            ++i;
+        }
+
+        return i;
     }
 
+    /**
+     * Skips trailing white space like {@link String#trim()}.
+     *
+     * @param input must not be {@code null}
+     * @param begin index to stop at
+     * @param end index after the last character
+     * @return index after the last non white space character, or begin
+     */
+    private static int trimEnd(final String input, final int begin, final int end) {
+        int i = end;
+
+        while (i > begin && input.charAt(i - 1) <= ' ') {
+            --i;
+        }
+
+        return i;
+    }
+
+    /**
+     * Warning which is formatted on demand.
+     */
+    @Immutable
+    private static final class Warning {
+
+        /**
+         * Format with one {@code %s} placeholder.
+         */
+        private final String format;
+        /**
+         * Holds the argument.
+         */
+        private final String input;
+        /**
+         * Index of the argument's first character.
+         */
+        private final int begin;
+        /**
+         * Index after the argument's last character.
+         */
+        private final int end;
+
+        /**
+         * Convenience constructor for a whole string as argument.
+         *
+         * @param format must not be {@code null}
+         * @param argument must not be {@code null}
+         */
+        Warning(final String format, final String argument) {
+            this(format, argument, 0, argument.length());
+        }
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param format must not be {@code null}
+         * @param input must not be {@code null}
+         * @param begin index of the argument's first character
+         * @param end index after the argument's last character
+         */
+        Warning(final String format, final String input, final int begin, final int end) {
+            super();
+            this.format = format;
+            this.input = input;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(format, input.substring(begin, end));
+        }
+
+    }
 
 }
@@ -1,10 +1,15 @@
 package de.weltraumschaf.freemarkerdown;
 
+import de.weltraumschaf.commons.guava.Lists;
 import de.weltraumschaf.commons.guava.Maps;
 import de.weltraumschaf.commons.validate.Validate;
 import freemarker.template.Configuration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import net.jcip.annotations.NotThreadSafe;
 
 /**
@@ -21,6 +26,14 @@ final class LayoutImpl extends BaseTemplate implements Layout {
      */
     private final Map<String, TemplateModel> fragments = Maps.newHashMap();
 
+    /**
+     * Used to render the fragments concurrently.
+     * <p>
+     * May be {@code null}, then the fragments are rendered sequentially.
+     * </p>
+     */
+    private transient Executor fragmentExecutor;
+
     /**
      * Dedicated constructor.
      *
@@ -38,6 +51,15 @@ final class LayoutImpl extends BaseTemplate implements Layout {
         super(template, encoding, freeMarkerConfig, options, templateName);
     }
 
+    /**
+     * Injection point for the executor used to render fragments concurrently.
+     *
+     * @param fragmentExecutor may be {@code null} to render fragments sequentially
+     */
+    void setFragmentExecutor(final Executor fragmentExecutor) {
+        this.fragmentExecutor = fragmentExecutor;
+    }
+
     @Override
     void register(final EventConsumer consumer) {
         super.register(consumer);
@@ -74,13 +96,45 @@ final class LayoutImpl extends BaseTemplate implements Layout {
         fragments.put(Validate.notEmpty(name, "name"), Validate.notNull(template, "template"));
     }
 
+    /**
+     * Renders all assigned fragments and assigns their content as variable.
+     * <p>
+     * The fragments are not rendered if the content of the layout is served from the output cache.
+     * </p>
+     */
     @Override
-    public String render() {
+    void prepareRendering() {
+        if (null == fragmentExecutor || fragments.size() < 2) {
+            for (final Map.Entry<String, TemplateModel> fragment : fragments.entrySet()) {
+                assignVariable(fragment.getKey(), fragment.getValue().render());
+            }
+
+            return;
+        }
+
+        renderFragmentsConcurrently();
+    }
+
+    /**
+     * Renders the fragments with the {@link #fragmentExecutor} and assigns their content after all are finished.
+     * <p>
+     * See {@link RenderTasks} how nested layouts are prevented from dead locking.
+     * </p>
+     */
+    private void renderFragmentsConcurrently() {
+        final List<String> names = Lists.newArrayListWithCapacity(fragments.size());
+        final List<RenderTask> tasks = Lists.newArrayListWithCapacity(fragments.size());
+
         for (final Map.Entry<String, TemplateModel> fragment : fragments.entrySet()) {
-            assignVariable(fragment.getKey(), fragment.getValue().render());
+            names.add(fragment.getKey());
+            tasks.add(new RenderTask(fragment.getValue()));
         }
 
-        return super.render();
+        final List<String> contents = RenderTasks.invokeAll(tasks, fragmentExecutor);
+
+        for (int i = 0; i < names.size(); ++i) {
+            assignVariable(names.get(i), contents.get(i));
+        }
     }
 
     @Override
@@ -92,6 +146,21 @@ final class LayoutImpl extends BaseTemplate implements Layout {
         }
     }
 
+    @Override
+    void applyAll(final Collection<PreProcessor> processors) {
+        super.applyAll(processors);
+
+        for (final TemplateModel fragment : fragments.values()) {
+            if (fragment instanceof BaseTemplate) {
+                ((BaseTemplate) fragment).applyAll(processors);
+            } else {
+                for (final PreProcessor processor : processors) {
+                    fragment.apply(processor);
+                }
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "Layout{"
@@ -99,4 +168,31 @@ final class LayoutImpl extends BaseTemplate implements Layout {
             + "fragments=" + fragments
             + '}';
     }
+
+    /**
+     * Renders one fragment.
+     */
+    private static final class RenderTask implements Callable<String> {
+
+        /**
+         * The fragment to render.
+         */
+        private final TemplateModel fragment;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param fragment must not be {@code null}
+         */
+        RenderTask(final TemplateModel fragment) {
+            super();
+            this.fragment = Validate.notNull(fragment, "fragment");
+        }
+
+        @Override
+        public String call() {
+            return fragment.render();
+        }
+
+    }
 }
@@ -0,0 +1,303 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Size bounded cache which evicts the least recently used entries first.
+ * <p>
+ * The entries are held in a {@link ConcurrentHashMap}, so lookups take no lock. Each lookup only stamps the entry
+ * with the current value of a clock which is advanced by each put. So the eviction order is approximate: Entries
+ * used between the same two puts are equally recent. Only puts into a full cache take a lock to evict the least
+ * recently used entries. They evict at least one more entry than necessary, so that not every following put has to
+ * evict. Only the entry put last is always kept.
+ * </p>
+ *
+ * @param <K> type of keys
+ * @param <V> type of cached values
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+final class LruCache<K, V> {
+
+    /**
+     * Fraction of the maximum size which is additionally evicted from a full cache, at least one entry.
+     */
+    private static final int EVICTION_BATCH_DIVISOR = 16;
+
+    /**
+     * Holds the cached values.
+     */
+    private final ConcurrentMap<K, Node<V>> entries = new ConcurrentHashMap<>();
+    /**
+     * Advanced by two on each put, used to stamp accessed entries.
+     * <p>
+     * Puts stamp even values, lookups the odd value after the last put. So an entry used after a put is more recent
+     * than the entry put, and an entry put is more recent than all entries used before.
+     * </p>
+     */
+    private final AtomicLong clock = new AtomicLong();
+    /**
+     * Serializes evictions.
+     */
+    private final Object evictionLock = new Object();
+    /**
+     * Number of successful lookups.
+     */
+    private final StripedCounter hits = new StripedCounter();
+    /**
+     * Number of failed lookups.
+     */
+    private final StripedCounter misses = new StripedCounter();
+    /**
+     * Number of entries removed because the cache was full.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+    /**
+     * Maximum number of entries.
+     */
+    private volatile int maxSize;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    LruCache(final int maxSize) {
+        super();
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Get a cached value.
+     * <p>
+     * Takes no lock. The entry is only stamped with the clock of the last put, so the recency of entries used
+     * between the same two puts is equal and the eviction order is approximate.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @return {@code null} if nothing cached for the key
+     */
+    V get(final K key) {
+        final Node<V> node = entries.get(Validate.notNull(key, "key"));
+
+        if (null == node) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        node.touch(clock.get() + 1);
+        return node.value;
+    }
+
+    /**
+     * Caches a value.
+     * <p>
+     * If the cache is full the least recently used entries will be evicted.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @param value must not be {@code null}
+     */
+    void put(final K key, final V value) {
+        Validate.notNull(key, "key");
+        Validate.notNull(value, "value");
+        final int max = maxSize;
+
+        if (0 == max) {
+            return;
+        }
+
+        entries.put(key, new Node<>(value, clock.addAndGet(2)));
+
+        if (entries.size() > max) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes all cached entries.
+     * <p>
+     * The counters are not reset.
+     * </p>
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Set the maximum number of cached entries.
+     * <p>
+     * If the new size is lower than the current number of entries, the least recently used entries are evicted.
+     * </p>
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Parameter 'maxSize' must not be negative!");
+        }
+
+        this.maxSize = maxSize;
+
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Get a snapshot of the current statistics.
+     *
+     * @return never {@code null}
+     */
+    CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.get(), entries.size(), maxSize);
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits into {@link #maxSize} with some space left.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            final int max = maxSize;
+            final int size = entries.size();
+
+            if (size <= max) {
+                // Another thread already evicted.
+                return;
+            }
+
+            @SuppressWarnings("unchecked")
+            final Map.Entry<K, Node<V>>[] candidates = entries.entrySet().toArray(new Map.Entry[size]);
+            Arrays.sort(candidates, new Comparator<Map.Entry<K, Node<V>>>() {
+
+                @Override
+                public int compare(final Map.Entry<K, Node<V>> one, final Map.Entry<K, Node<V>> other) {
+                    final long first = one.getValue().accessed;
+                    final long second = other.getValue().accessed;
+                    return first < second ? -1 : (first == second ? 0 : 1);
+                }
+            });
+
+            // Keep at least one entry, which is the one put last because it has the newest stamp.
+            final int target = Math.max(1, max - Math.max(1, max / EVICTION_BATCH_DIVISOR));
+            int current = entries.size();
+
+            for (int i = 0; i < candidates.length && current > target; ++i) {
+                // Candidates may be null if entries were removed after sizing the array.
+                if (null != candidates[i]
+                    && entries.remove(candidates[i].getKey(), candidates[i].getValue())) {
+                    evictions.incrementAndGet();
+                    --current;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LruCache{"
+            + "maxSize=" + maxSize + ", "
+            + "hits=" + hits.sum() + ", "
+            + "misses=" + misses.sum() + ", "
+            + "evictions=" + evictions.get() + ", "
+            + "size=" + entries.size()
+            + '}';
+    }
+
+    /**
+     * Cached value with the time of its last access.
+     *
+     * @param <V> type of cached value
+     */
+    private static final class Node<V> {
+
+        /**
+         * Cached value.
+         */
+        private final V value;
+        /**
+         * Clock value of the last access.
+         */
+        private volatile long accessed;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param value must not be {@code null}
+         * @param accessed clock value of creation
+         */
+        Node(final V value, final long accessed) {
+            super();
+            this.value = value;
+            this.accessed = accessed;
+        }
+
+        /**
+         * Stamps the access.
+         *
+         * @param now current clock value
+         */
+        void touch(final long now) {
+            // Avoid writing the shared cache line if the entry was already used since the last put.
+            if (accessed != now) {
+                accessed = now;
+            }
+        }
+
+    }
+
+    /**
+     * Counter which spreads increments of different threads over padded cells.
+     */
+    @ThreadSafe
+    private static final class StripedCounter {
+
+        /**
+         * Number of cells, must be a power of two.
+         */
+        private static final int STRIPES = 16;
+        /**
+         * Distance between cells in longs, so that each cell has its own cache line.
+         */
+        private static final int PADDING = 8;
+
+        /**
+         * Holds the cells.
+         */
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        /**
+         * Increments the cell of the current thread.
+         */
+        void increment() {
+            cells.incrementAndGet(((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING);
+        }
+
+        /**
+         * Get the sum of all cells.
+         *
+         * @return not negative
+         */
+        long sum() {
+            long sum = 0;
+
+            for (int i = 0; i < STRIPES; ++i) {
+                sum += cells.get(i * PADDING);
+            }
+
+            return sum;
+        }
+
+    }
+
+}
@@ -0,0 +1,396 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.io.IOException;
+import java.io.Writer;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Converts Markdown written into it block by block and writes the HTML to another writer.
+ * <p>
+ * Only the current block is buffered: A block ends at a blank line which is followed by a line starting a new
+ * top level block. Lines which are indented or start a list item, a quote or HTML continue the current block, as
+ * do all lines of fenced code blocks. So the memory needed does not depend on the size of the whole document.
+ * </p>
+ * <p>
+ * Because each block is converted on its own, reference style links must be defined in the same block in which
+ * they are used. Blocks and lines longer than the {@link #DEFAULT_MAX_BLOCK_SIZE maximum block size} are converted in
+ * pieces at line boundaries or in the middle of the line, so that the buffer stays bounded. Fenced code blocks are
+ * closed and opened again when they are split.
+ * </p>
+ * <p>
+ * The {@link MarkdownProcessor#getMaxInputSize() maximum input size} applies to all Markdown written into this
+ * writer, not to each block. Because the HTML of the previous blocks is already written when the limit is exceeded,
+ * the {@link MarkdownFallback#PREFORMATTED preformatted fallback} only applies to the rest of the Markdown. With the
+ * {@link MarkdownFallback#ERROR error fallback} a {@link TemplateError} is thrown as soon as the limit is exceeded.
+ * The {@link MarkdownProcessor#setMaxParsingTime(long) maximum parsing time} applies to each block.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@NotThreadSafe
+final class MarkdownBlockWriter extends Writer {
+
+    /**
+     * Markers which start and end fenced code blocks.
+     */
+    private static final String[] FENCES = {"```", "~~~"};
+    /**
+     * Default maximum number of characters of a block.
+     */
+    static final int DEFAULT_MAX_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Where the HTML is written.
+     */
+    private final Writer out;
+    /**
+     * Converts the blocks.
+     */
+    private final MarkdownProcessor markdown;
+    /**
+     * Maximum number of characters of all written Markdown, {@code 0} for unlimited.
+     */
+    private final int maxInputSize;
+    /**
+     * Maximum number of buffered characters before the current block is converted.
+     */
+    private final int maxBlockSize;
+    /**
+     * Current line until the next line break.
+     */
+    private final StringBuilder line = new StringBuilder();
+    /**
+     * Lines of the current block.
+     */
+    private final StringBuilder block = new StringBuilder();
+    /**
+     * Marker of the current fenced code block, {@code null} if not in a fenced code block.
+     */
+    private String fence;
+    /**
+     * Line which opened the current fenced code block, {@code null} if not in a fenced code block.
+     */
+    private String fenceLine;
+    /**
+     * Whether the current fenced code block was split and must be opened again by the next line.
+     */
+    private boolean reopenFence;
+    /**
+     * Whether the last line of the current block is blank.
+     */
+    private boolean afterBlankLine;
+    /**
+     * Whether any HTML was written.
+     */
+    private boolean written;
+    /**
+     * Number of written Markdown characters.
+     */
+    private long size;
+    /**
+     * Whether the maximum input size was exceeded and the rest is written preformatted.
+     */
+    private boolean exceeded;
+    /**
+     * Whether all remaining Markdown was converted.
+     */
+    private boolean finished;
+
+    /**
+     * Convenience constructor with {@link #DEFAULT_MAX_BLOCK_SIZE default maximum block size}.
+     *
+     * @param out must not be {@code null}
+     * @param markdown must not be {@code null}
+     */
+    MarkdownBlockWriter(final Writer out, final MarkdownProcessor markdown) {
+        this(out, markdown, DEFAULT_MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param out must not be {@code null}
+     * @param markdown must not be {@code null}
+     * @param maxBlockSize must be greater than {@code 0}
+     */
+    MarkdownBlockWriter(final Writer out, final MarkdownProcessor markdown, final int maxBlockSize) {
+        super();
+
+        if (maxBlockSize <= 0) {
+            throw new IllegalArgumentException("Parameter 'maxBlockSize' must be greater than 0!");
+        }
+
+        this.out = Validate.notNull(out, "out");
+        this.markdown = Validate.notNull(markdown, "markdown");
+        this.maxInputSize = markdown.getMaxInputSize();
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        for (int i = off; i < off + len; ++i) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(final String str, final int off, final int len) throws IOException {
+        for (int i = off; i < off + len; ++i) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    /**
+     * Appends one character of Markdown.
+     *
+     * @param c any character
+     * @throws IOException if HTML can't be written
+     */
+    private void writeChar(final char c) throws IOException {
+        if (exceeded) {
+            final String entity = MarkdownProcessor.htmlEntity(c);
+
+            if (null == entity) {
+                out.write(c);
+            } else {
+                out.write(entity);
+            }
+
+            return;
+        }
+
+        ++size;
+        line.append(c);
+
+        if (maxInputSize > 0 && size > maxInputSize) {
+            exceedMaxInputSize();
+        } else if ('\n' == c || line.length() >= maxBlockSize) {
+            // Overlong lines are split, so that the buffer stays bounded.
+            appendLine();
+        }
+    }
+
+    /**
+     * Applies the fallback to the not converted Markdown and all following Markdown.
+     *
+     * @throws IOException if HTML can't be written
+     */
+    private void exceedMaxInputSize() throws IOException {
+        if (MarkdownFallback.ERROR == markdown.getFallback()) {
+            throw new TemplateError(
+                String.format("Markdown exceeds maximum of %d characters!", maxInputSize), null);
+        }
+
+        exceeded = true;
+        writeSeparator();
+        out.write("<pre>");
+        out.write(MarkdownProcessor.escapeHtml(block.toString()));
+        out.write(MarkdownProcessor.escapeHtml(line.toString()));
+        block.setLength(0);
+        line.setLength(0);
+    }
+
+    /**
+     * Appends the current line to the current block or starts a new block.
+     *
+     * @throws IOException if HTML can't be written
+     */
+    private void appendLine() throws IOException {
+        final String content = line.toString().trim();
+
+        if (null != fence) {
+            if (content.startsWith(fence)) {
+                final boolean closedBySplit = reopenFence;
+                fence = null;
+                fenceLine = null;
+                reopenFence = false;
+
+                if (closedBySplit) {
+                    // The fenced code block was already closed when it was split.
+                    line.setLength(0);
+                    return;
+                }
+            } else if (reopenFence) {
+                block.append(fenceLine).append('\n');
+                reopenFence = false;
+            }
+        } else if (content.isEmpty()) {
+            afterBlankLine = block.length() > 0;
+        } else {
+            if (afterBlankLine && startsBlock(line)) {
+                convertBlock();
+            }
+
+            afterBlankLine = false;
+            fence = findFence(content);
+            fenceLine = null == fence ? null : content;
+        }
+
+        block.append(line);
+        line.setLength(0);
+
+        if (block.length() >= maxBlockSize) {
+            splitBlock();
+        }
+    }
+
+    /**
+     * Converts the current block because it exceeds the maximum block size.
+     * <p>
+     * A fenced code block is closed and opened again, so that the rest is still formatted as code.
+     * </p>
+     *
+     * @throws IOException if HTML can't be written
+     */
+    private void splitBlock() throws IOException {
+        if (null == fence) {
+            convertBlock();
+            return;
+        }
+
+        if ('\n' != block.charAt(block.length() - 1)) {
+            block.append('\n');
+        }
+
+        block.append(fence).append('\n');
+        convertBlock();
+        reopenFence = true;
+    }
+
+    /**
+     * Whether the given line can start a new top level block.
+     *
+     * @param candidate must not be {@code null} or empty
+     * @return {@code true} if the previous block can be converted, else {@code false}
+     */
+    private static boolean startsBlock(final CharSequence candidate) {
+        final char first = candidate.charAt(0);
+
+        if (' ' == first || '\t' == first || '>' == first || '<' == first) {
+            return false;
+        }
+
+        return !isListItem(candidate);
+    }
+
+    /**
+     * Whether the given line starts a list item.
+     *
+     * @param candidate must not be {@code null} or empty
+     * @return {@code true} for list items, else {@code false}
+     */
+    private static boolean isListItem(final CharSequence candidate) {
+        final char first = candidate.charAt(0);
+
+        if ('-' == first || '*' == first || '+' == first) {
+            return candidate.length() > 1 && Character.isWhitespace(candidate.charAt(1));
+        }
+
+        int i = 0;
+
+        while (i < candidate.length() && Character.isDigit(candidate.charAt(i))) {
+            ++i;
+        }
+
+        return i > 0 && i < candidate.length() && '.' == candidate.charAt(i);
+    }
+
+    /**
+     * Get the fence marker if the line opens a fenced code block.
+     *
+     * @param content must not be {@code null}
+     * @return {@code null} if the line does not open a fenced code block
+     */
+    private static String findFence(final String content) {
+        for (final String marker : FENCES) {
+            if (content.startsWith(marker)) {
+                return marker;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Converts the current block and writes the HTML.
+     *
+     * @throws IOException if HTML can't be written
+     */
+    private void convertBlock() throws IOException {
+        if (block.toString().trim().isEmpty()) {
+            block.setLength(0);
+            return;
+        }
+
+        final String html = markdown.markdownToHtml(block.toString());
+        block.setLength(0);
+
+        if (html.isEmpty()) {
+            return;
+        }
+
+        writeSeparator();
+        out.write(html);
+    }
+
+    /**
+     * Separates the following HTML from previously written HTML.
+     *
+     * @throws IOException if HTML can't be written
+     */
+    private void writeSeparator() throws IOException {
+        if (written) {
+            out.write('\n');
+        }
+
+        written = true;
+    }
+
+    /**
+     * Converts all remaining Markdown.
+     * <p>
+     * Must be called after all Markdown was written. Further invocations do nothing.
+     * </p>
+     *
+     * @throws IOException if HTML can't be written
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+
+        finished = true;
+
+        if (exceeded) {
+            out.write("</pre>");
+            return;
+        }
+
+        if (line.length() > 0) {
+            appendLine();
+        }
+
+        convertBlock();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Converts all remaining Markdown.
+     * <p>
+     * The underlying writer is not closed.
+     * </p>
+     *
+     * @throws IOException if HTML can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+}
@@ -0,0 +1,32 @@
+package de.weltraumschaf.freemarkerdown;
+
+/**
+ * Converts Markdown to HTML.
+ * <p>
+ * By default {@link FreeMarkerDown} uses PegDown to convert Markdown. Other Markdown libraries may be used by
+ * implementing this interface and {@link FreeMarkerDown#setMarkdownConverter(MarkdownConverter) setting} the
+ * implementation on the engine.
+ * </p>
+ * <p>
+ * Implementations must be thread safe, because one converter is used for all templates of an engine, which may be
+ * rendered concurrently.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+public interface MarkdownConverter {
+
+    /**
+     * Converts the given Markdown to HTML.
+     * <p>
+     * If the conversion is aborted, e.g. because it takes too long, {@code null} is returned and the engine uses
+     * its {@link FreeMarkerDown#setMarkdownFallback(MarkdownFallback) fallback}.
+     * </p>
+     *
+     * @param markdown never {@code null}
+     * @return {@code null} if aborted
+     */
+    String convert(String markdown);
+
+}
@@ -0,0 +1,19 @@
+package de.weltraumschaf.freemarkerdown;
+
+/**
+ * What to do if Markdown can't be converted in time or is too large.
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+public enum MarkdownFallback {
+
+    /**
+     * Renders the unconverted Markdown HTML escaped into a {@code pre} element.
+     */
+    PREFORMATTED,
+    /**
+     * Throws a {@link TemplateError}.
+     */
+    ERROR;
+}
@@ -0,0 +1,362 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Converts Markdown to HTML with a {@link MarkdownConverter}.
+ * <p>
+ * By default Markdown is converted by {@link PegDownConverter PegDown}.
+ * </p>
+ * <p>
+ * Converters may need very long to parse some inputs. So the parsing time and the size of the Markdown are limited.
+ * If a limit is exceeded or the converter aborts, the {@link MarkdownFallback fallback} is used instead of the
+ * converted HTML.
+ * </p>
+ * <p>
+ * Optionally the converted HTML is cached by a 128 bit hash of the Markdown, so the Markdown itself is not kept in
+ * memory. The cache is disabled by default.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+final class MarkdownProcessor {
+
+    /**
+     * Algorithm used to hash the Markdown.
+     */
+    private static final String DIGEST_ALGORITHM = "MD5";
+
+    /**
+     * Default converter with the current maximum parsing time.
+     * <p>
+     * Kept while a custom converter is used, so that the maximum parsing time is not lost.
+     * </p>
+     */
+    private volatile PegDownConverter pegDown = new PegDownConverter();
+    /**
+     * Converts the Markdown.
+     */
+    private volatile MarkdownConverter converter = pegDown;
+    /**
+     * Holds the message digest of each thread.
+     */
+    private final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance(DIGEST_ALGORITHM);
+            } catch (final NoSuchAlgorithmException ex) {
+                // Should never happen because every Java platform must support it.
+                throw new IllegalStateException(ex);
+            }
+        }
+    };
+    /**
+     * Caches converted HTML by hash of the Markdown.
+     */
+    private final LruCache<Digest, String> results = new LruCache<>(0);
+    /**
+     * Whether the cache is enabled, so that no hash is computed if not.
+     */
+    private volatile boolean cacheEnabled;
+    /**
+     * Maximum number of characters to convert, {@code 0} for unlimited.
+     */
+    private volatile int maxInputSize;
+    /**
+     * Used if the Markdown can't be converted.
+     */
+    private volatile MarkdownFallback fallback = MarkdownFallback.PREFORMATTED;
+    /**
+     * Number of conversions aborted by the converter.
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Converts the given Markdown to HTML.
+     *
+     * @param markdown must not be {@code null}
+     * @return never {@code null}
+     */
+    String markdownToHtml(final String markdown) {
+        Validate.notNull(markdown, "markdown");
+
+        if (maxInputSize > 0 && markdown.length() > maxInputSize) {
+            return fallback(markdown, String.format(
+                "Markdown with %d characters exceeds maximum of %d characters!", markdown.length(), maxInputSize));
+        }
+
+        if (!cacheEnabled) {
+            return convert(markdown);
+        }
+
+        final Digest key = new Digest(digests.get().digest(markdown.getBytes(StandardCharsets.UTF_8)));
+        String html = results.get(key);
+
+        if (null == html) {
+            html = converter.convert(markdown);
+
+            if (null == html) {
+                return aborted(markdown);
+            }
+
+            results.put(key, html);
+        }
+
+        return html;
+    }
+
+    /**
+     * Converts the Markdown without cache.
+     *
+     * @param markdown must not be {@code null}
+     * @return never {@code null}
+     */
+    private String convert(final String markdown) {
+        final String html = converter.convert(markdown);
+        return null == html ? aborted(markdown) : html;
+    }
+
+    /**
+     * Counts the aborted conversion and applies the fallback.
+     *
+     * @param markdown must not be {@code null}
+     * @return never {@code null}
+     */
+    private String aborted(final String markdown) {
+        timeouts.incrementAndGet();
+        return fallback(markdown, "Markdown conversion was aborted by the converter!");
+    }
+
+    /**
+     * Applies the fallback for not converted Markdown.
+     *
+     * @param markdown must not be {@code null}
+     * @param reason must not be {@code null} or empty
+     * @return never {@code null}
+     */
+    private String fallback(final String markdown, final String reason) {
+        if (MarkdownFallback.ERROR == fallback) {
+            throw new TemplateError(reason, null);
+        }
+
+        return "<pre>" + escapeHtml(markdown) + "</pre>";
+    }
+
+    /**
+     * Escapes the HTML special characters of the given string.
+     *
+     * @param input must not be {@code null}
+     * @return never {@code null}
+     */
+    static String escapeHtml(final String input) {
+        final StringBuilder buffer = new StringBuilder(input.length() + 16);
+
+        for (int i = 0; i < input.length(); ++i) {
+            final char c = input.charAt(i);
+            final String entity = htmlEntity(c);
+
+            if (null == entity) {
+                buffer.append(c);
+            } else {
+                buffer.append(entity);
+            }
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * Get the HTML entity of the given character.
+     *
+     * @param c any character
+     * @return {@code null} if the character needs no escaping
+     */
+    static String htmlEntity(final char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#39;";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Set the converter.
+     * <p>
+     * Cached conversions are removed, because they were converted by the previous converter.
+     * </p>
+     *
+     * @param converter must not be {@code null}
+     */
+    synchronized void setConverter(final MarkdownConverter converter) {
+        this.converter = Validate.notNull(converter, "converter");
+        results.clear();
+    }
+
+    /**
+     * Switches back to the {@link PegDownConverter default converter}.
+     * <p>
+     * The default converter uses the last set {@link #setMaxParsingTime(long) maximum parsing time}. Cached
+     * conversions are removed, because they were converted by the previous converter.
+     * </p>
+     */
+    synchronized void useDefaultConverter() {
+        setConverter(pegDown);
+    }
+
+    /**
+     * Set the maximum time to parse one Markdown.
+     * <p>
+     * Only applies to the {@link PegDownConverter default converter}. If a custom converter is used, the time is
+     * applied as soon as the {@link #useDefaultConverter() default converter} is used again.
+     * </p>
+     *
+     * @param maxParsingTime milliseconds, must be greater than {@code 0}
+     */
+    synchronized void setMaxParsingTime(final long maxParsingTime) {
+        final PegDownConverter created = new PegDownConverter(maxParsingTime);
+
+        if (converter == pegDown) {
+            converter = created;
+        }
+
+        pegDown = created;
+    }
+
+    /**
+     * Set the maximum number of characters to convert.
+     *
+     * @param maxInputSize must not be negative, {@code 0} for unlimited
+     */
+    void setMaxInputSize(final int maxInputSize) {
+        if (maxInputSize < 0) {
+            throw new IllegalArgumentException("Parameter 'maxInputSize' must not be negative!");
+        }
+
+        this.maxInputSize = maxInputSize;
+    }
+
+    /**
+     * Get the maximum number of characters to convert.
+     *
+     * @return not negative, {@code 0} for unlimited
+     */
+    int getMaxInputSize() {
+        return maxInputSize;
+    }
+
+    /**
+     * Get what to do if Markdown can't be converted.
+     *
+     * @return never {@code null}
+     */
+    MarkdownFallback getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Set what to do if Markdown can't be converted.
+     *
+     * @param fallback must not be {@code null}
+     */
+    void setFallback(final MarkdownFallback fallback) {
+        this.fallback = Validate.notNull(fallback, "fallback");
+    }
+
+    /**
+     * Get the number of conversions aborted by the converter, e.g. because they exceeded the maximum parsing time.
+     *
+     * @return not negative
+     */
+    long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Set the maximum number of cached conversions.
+     *
+     * @param maxSize must not be negative, {@code 0} disables the cache
+     */
+    void setCacheSize(final int maxSize) {
+        results.setMaxSize(maxSize);
+        cacheEnabled = maxSize > 0;
+    }
+
+    /**
+     * Get a snapshot of the cache counters.
+     *
+     * @return never {@code null}
+     */
+    CacheStatistics getStatistics() {
+        return results.getStatistics();
+    }
+
+    @Override
+    public String toString() {
+        return "MarkdownProcessor{" + "converter=" + converter + ", " + "results=" + results + '}';
+    }
+
+    /**
+     * 128 bit hash of a Markdown.
+     */
+    @Immutable
+    private static final class Digest {
+
+        /**
+         * High 64 bits.
+         */
+        private final long high;
+        /**
+         * Low 64 bits.
+         */
+        private final long low;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param bytes must not be {@code null}, at least 16 bytes
+         */
+        Digest(final byte[] bytes) {
+            super();
+            final ByteBuffer buffer = ByteBuffer.wrap(Validate.notNull(bytes, "bytes"));
+            this.high = buffer.getLong();
+            this.low = buffer.getLong();
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Digest)) {
+                return false;
+            }
+
+            final Digest other = (Digest) obj;
+            return high == other.high && low == other.low;
+        }
+
+    }
+
+}
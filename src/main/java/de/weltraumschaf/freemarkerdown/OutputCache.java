@@ -0,0 +1,263 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Caches the rendered content of {@link RenderOptions#CACHEABLE cacheable} templates.
+ * <p>
+ * The content is keyed by the template name, the preprocessed template source, the render options
+ * and a cache key given by the caller. The variables are not part of the key, so that they are neither hashed nor
+ * kept alive by the cache: The cache key must identify the variables, e.g. by an id and version of the rendered
+ * model. Cached content expires after the {@link #setTimeToLive(long) time to live}.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+final class OutputCache {
+
+    /**
+     * Default number of cached contents.
+     */
+    static final int DEFAULT_MAX_SIZE = 512;
+
+    /**
+     * Holds the rendered contents.
+     */
+    private final LruCache<Key, Entry> outputs;
+    /**
+     * Number of lookups which found an expired content.
+     */
+    private final AtomicLong expirations = new AtomicLong();
+    /**
+     * Milliseconds a content is valid after rendering, {@code 0} for forever.
+     */
+    private volatile long timeToLive;
+
+    /**
+     * Convenience constructor with {@link #DEFAULT_MAX_SIZE default size}.
+     */
+    OutputCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    OutputCache(final int maxSize) {
+        super();
+        this.outputs = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Get a cached content.
+     *
+     * @param key must not be {@code null}
+     * @return {@code null} if not cached or expired
+     */
+    String get(final Key key) {
+        final Entry entry = outputs.get(key);
+
+        if (null == entry) {
+            return null;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            expirations.incrementAndGet();
+            return null;
+        }
+
+        return entry.getContent();
+    }
+
+    /**
+     * Caches a rendered content.
+     *
+     * @param key must not be {@code null}
+     * @param content must not be {@code null}
+     */
+    void put(final Key key, final String content) {
+        final long ttl = timeToLive;
+        final long expires = 0 == ttl ? Long.MAX_VALUE : System.currentTimeMillis() + ttl;
+        outputs.put(key, new Entry(content, expires));
+    }
+
+    /**
+     * Set the time a rendered content is valid.
+     *
+     * @param timeToLive milliseconds, must not be negative, {@code 0} for forever
+     */
+    void setTimeToLive(final long timeToLive) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("Parameter 'timeToLive' must not be negative!");
+        }
+
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Set the maximum number of cached contents.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    void setMaxSize(final int maxSize) {
+        outputs.setMaxSize(maxSize);
+    }
+
+    /**
+     * Removes all cached contents.
+     */
+    void clear() {
+        outputs.clear();
+    }
+
+    /**
+     * Get a snapshot of the cache counters.
+     * <p>
+     * Lookups which found an expired content count as misses.
+     * </p>
+     *
+     * @return never {@code null}
+     */
+    CacheStatistics getStatistics() {
+        final CacheStatistics statistics = outputs.getStatistics();
+        final long expired = expirations.get();
+        return new CacheStatistics(
+            statistics.getHits() - expired,
+            statistics.getMisses() + expired,
+            statistics.getEvictions(),
+            statistics.getSize(),
+            statistics.getMaxSize());
+    }
+
+    @Override
+    public String toString() {
+        return "OutputCache{" + "outputs=" + outputs + ", " + "timeToLive=" + timeToLive + '}';
+    }
+
+    /**
+     * Identifies a rendered content.
+     */
+    @Immutable
+    static final class Key {
+
+        /**
+         * Name of the template.
+         */
+        private final String name;
+        /**
+         * Preprocessed source of the template.
+         */
+        private final String source;
+        /**
+         * Options of the template.
+         */
+        private final Set<RenderOptions> options;
+        /**
+         * Identifies the variables of the template.
+         */
+        private final Object cacheKey;
+        /**
+         * Precomputed hash.
+         */
+        private final int hash;
+
+        /**
+         * Dedicated constructor.
+         * <p>
+         * The source is referenced, not copied. It is compared completely, because different sources may have the
+         * same hash.
+         * </p>
+         *
+         * @param name must not be {@code null}
+         * @param source must not be {@code null}
+         * @param options must not be {@code null}
+         * @param cacheKey must not be {@code null}
+         */
+        Key(final String name, final String source, final Set<RenderOptions> options, final Object cacheKey) {
+            super();
+            this.name = Validate.notNull(name, "name");
+            this.source = Validate.notNull(source, "source");
+            this.options = Validate.notNull(options, "options");
+            this.cacheKey = Validate.notNull(cacheKey, "cacheKey");
+            this.hash = Objects.hash(name, source, options, cacheKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return hash == other.hash
+                && name.equals(other.name)
+                && source.equals(other.source)
+                && options.equals(other.options)
+                && cacheKey.equals(other.cacheKey);
+        }
+
+    }
+
+    /**
+     * Rendered content and its expiry.
+     */
+    @Immutable
+    private static final class Entry {
+
+        /**
+         * Rendered content.
+         */
+        private final String content;
+        /**
+         * Time in milliseconds when the content expires.
+         */
+        private final long expires;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param content must not be {@code null}
+         * @param expires time in milliseconds
+         */
+        Entry(final String content, final long expires) {
+            super();
+            this.content = Validate.notNull(content, "content");
+            this.expires = expires;
+        }
+
+        /**
+         * Get the rendered content.
+         *
+         * @return never {@code null}
+         */
+        String getContent() {
+            return content;
+        }
+
+        /**
+         * Whether the content is expired at the given time.
+         *
+         * @param now time in milliseconds
+         * @return {@code true} if expired, else {@code false}
+         */
+        boolean isExpired(final long now) {
+            return now >= expires;
+        }
+
+    }
+
+}
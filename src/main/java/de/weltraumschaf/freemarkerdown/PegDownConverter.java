@@ -0,0 +1,85 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import net.jcip.annotations.ThreadSafe;
+import org.pegdown.Extensions;
+import org.pegdown.PegDownProcessor;
+
+/**
+ * Converts Markdown to HTML with PegDown.
+ * <p>
+ * Creating a {@link PegDownProcessor} is expensive because it generates its parser, and a processor must not be used
+ * by multiple threads at once. So this class lazily creates one processor per thread on the first conversion and
+ * reuses it for all subsequent conversions in that thread. Templates which are rendered without Markdown never
+ * create a processor.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+final class PegDownConverter implements MarkdownConverter {
+
+    /**
+     * Maximum parsing time in milliseconds of the created processors.
+     */
+    private final long maxParsingTime;
+    /**
+     * Holds the processor of each thread.
+     */
+    private final ThreadLocal<PegDownProcessor> processors = new ThreadLocal<PegDownProcessor>() {
+
+        @Override
+        protected PegDownProcessor initialValue() {
+            return new PegDownProcessor(Extensions.NONE, maxParsingTime);
+        }
+    };
+
+    /**
+     * Convenience constructor with PegDown's {@link PegDownProcessor#DEFAULT_MAX_PARSING_TIME default} parsing time.
+     */
+    PegDownConverter() {
+        this(PegDownProcessor.DEFAULT_MAX_PARSING_TIME);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param maxParsingTime milliseconds, must be greater than {@code 0}
+     */
+    PegDownConverter(final long maxParsingTime) {
+        super();
+
+        if (maxParsingTime <= 0) {
+            throw new IllegalArgumentException("Parameter 'maxParsingTime' must be greater than 0!");
+        }
+
+        this.maxParsingTime = maxParsingTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns {@code null} if parsing takes longer than the maximum parsing time.
+     * </p>
+     */
+    @Override
+    public String convert(final String markdown) {
+        return processors.get().markdownToHtml(Validate.notNull(markdown, "markdown"));
+    }
+
+    /**
+     * Get the maximum parsing time.
+     *
+     * @return milliseconds
+     */
+    long getMaxParsingTime() {
+        return maxParsingTime;
+    }
+
+    @Override
+    public String toString() {
+        return "PegDownConverter{" + "maxParsingTime=" + maxParsingTime + '}';
+    }
+
+}
@@ -1,5 +1,6 @@
 package de.weltraumschaf.freemarkerdown;
 
+import java.util.Collection;
 import net.jcip.annotations.NotThreadSafe;
 
 /**
@@ -20,4 +21,17 @@ interface PreProcessorApplier {
      */
     String apply(final String subject, final PreProcessor processor);
 
+    /**
+     * Applies all processors on the subject and returns the processed subject.
+     * <p>
+     * Each processing instruction is passed to the processor registered for its target. If multiple processors
+     * have the same target only the first one is applied.
+     * </p>
+     *
+     * @param subject must not be {@code null}
+     * @param processors must not be {@code null}
+     * @return never {@code null}
+     */
+    String applyAll(final String subject, final Collection<PreProcessor> processors);
+
 }
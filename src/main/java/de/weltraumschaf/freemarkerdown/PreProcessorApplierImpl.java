@@ -1,8 +1,15 @@
 package de.weltraumschaf.freemarkerdown;
 
+import de.weltraumschaf.commons.guava.Lists;
+import de.weltraumschaf.commons.guava.Maps;
+import de.weltraumschaf.commons.guava.Sets;
 import de.weltraumschaf.commons.validate.Validate;
-import java.util.StringTokenizer;
-import net.jcip.annotations.NotThreadSafe;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.jcip.annotations.ThreadSafe;
 
 /**
  * Implementation of an applier.
@@ -28,11 +35,18 @@ import net.jcip.annotations.NotThreadSafe;
  * foobar
  * Lorem ipsum dolor
  * </pre>
+ * <p>
+ * Multiple processors are applied in one pass over the subject: Each instruction is dispatched to the processor
+ * registered for its target.
+ * </p>
+ * <p>
+ * This implementation is stateless and may be shared between threads.
+ * </p>
  *
  * @since 1.0.0
  * @author Sven Strittmatter
  */
-@NotThreadSafe
+@ThreadSafe
 final class PreProcessorApplierImpl implements PreProcessorApplier {
 /**
      * Indicates beginning of preprocessor area.
@@ -45,38 +59,266 @@ final class PreProcessorApplierImpl implements PreProcessorApplier {
 
     @Override
     public String apply(final String subject, final PreProcessor processor) {
-        Validate.notNull(subject, "subject");
         Validate.notNull(processor, "processor");
-        final String startToken = START_TOKEN + processor.getTarget();
-        final StringTokenizer tokenizer = new StringTokenizer(subject, " \t\n\r\f", true);
-        final StringBuilder buffer = new StringBuilder();
+        return applyAll(subject, Collections.singletonList(processor));
+    }
 
-        StringBuilder instructionBuffer = new StringBuilder();
-        boolean insideInstruction = false;
+    @Override
+    public String applyAll(final String subject, final Collection<PreProcessor> processors) {
+        Validate.notNull(subject, "subject");
+        final Map<String, PreProcessor> targets = mapStartTokens(Validate.notNull(processors, "processors"));
+
+        if (targets.isEmpty()) {
+            return subject;
+        }
 
-        while (tokenizer.hasMoreTokens()) {
-            final String current = tokenizer.nextToken();
+        return scan(subject, targets.keySet()).apply(targets);
+    }
 
-            if (startToken.equals(current)) {
-                insideInstruction = true;
-                continue;
+    /**
+     * Splits the subject into plain text and the instructions for the given start tokens.
+     * <p>
+     * Start and end tokens are only recognized as whole words delimited by white space. An instruction which is not
+     * closed until the end of the subject is dropped. The subject is scanned by index, so no strings are created
+     * while scanning.
+     * </p>
+     *
+     * @param subject must not be {@code null}
+     * @param startTokens must not be {@code null}
+     * @return never {@code null}
+     */
+    ScannedTemplate scan(final String subject, final Set<String> startTokens) {
+        Validate.notNull(subject, "subject");
+        Validate.notNull(startTokens, "startTokens");
+        final List<ScannedTemplate.Segment> segments = Lists.newArrayList();
+        final int length = subject.length();
+        int textBegin = 0;
+        int position = 0;
+        boolean containsInstructions = false;
+
+        while (position < length) {
+            final int tokenBegin = subject.indexOf(START_TOKEN, position);
+
+            if (tokenBegin < 0) {
+                break;
             }
 
-            if (END_TOKEN.equals(current) && insideInstruction) {
-                insideInstruction = false;
-                buffer.append(processor.process(instructionBuffer.toString()));
-                instructionBuffer = new StringBuilder();
+            final int tokenEnd = findWordEnd(subject, tokenBegin);
+            final String current = isWordBegin(subject, tokenBegin)
+                ? findStartToken(subject, tokenBegin, tokenEnd, startTokens)
+                : null;
+
+            if (null == current) {
+                position = tokenEnd;
                 continue;
             }
 
-            if (insideInstruction) {
-                instructionBuffer.append(current);
-            } else {
-                buffer.append(current);
+            containsInstructions = true;
+            final int instructionEnd = findEndToken(subject, tokenEnd);
+
+            if (instructionEnd < 0) {
+                // Unclosed instruction is dropped.
+                segments.add(ScannedTemplate.Segment.text(textBegin, tokenBegin));
+                return new ScannedTemplate(subject, segments, containsInstructions);
+            }
+
+            segments.add(ScannedTemplate.Segment.text(textBegin, tokenBegin));
+            segments.add(ScannedTemplate.Segment.instruction(current, tokenEnd, instructionEnd));
+            textBegin = instructionEnd + END_TOKEN.length();
+            position = textBegin;
+        }
+
+        segments.add(ScannedTemplate.Segment.text(textBegin, length));
+        return new ScannedTemplate(subject, segments, containsInstructions);
+    }
+
+    /**
+     * Finds the content of the first instruction for the given target.
+     * <p>
+     * If the subject is not complete, e.g. only the beginning of a file was read so far, a token at the end of the
+     * subject is not recognized, because its word may continue.
+     * </p>
+     *
+     * @param subject must not be {@code null}
+     * @param target must not be {@code null} or empty
+     * @param complete whether the subject is complete
+     * @return {@code null} if no closed instruction was found
+     */
+    static String findInstruction(final String subject, final String target, final boolean complete) {
+        Validate.notNull(subject, "subject");
+        final String startToken = START_TOKEN + Validate.notEmpty(target, "target");
+        int position = 0;
+
+        while (true) {
+            final int tokenBegin = subject.indexOf(startToken, position);
+
+            if (tokenBegin < 0) {
+                return null;
+            }
+
+            final int tokenEnd = findWordEnd(subject, tokenBegin);
+
+            if (!complete && tokenEnd == subject.length()) {
+                return null;
+            }
+
+            if (isWordBegin(subject, tokenBegin) && tokenEnd - tokenBegin == startToken.length()) {
+                final int instructionEnd = findEndToken(subject, tokenEnd);
+
+                if (instructionEnd < 0
+                    || (!complete && instructionEnd + END_TOKEN.length() == subject.length())) {
+                    return null;
+                }
+
+                return subject.substring(tokenEnd, instructionEnd);
+            }
+
+            position = tokenEnd;
+        }
+    }
+
+    /**
+     * Finds the targets of all processing instructions in the subject.
+     * <p>
+     * Only the start tokens are searched, so a target is also found if its instruction is not closed.
+     * </p>
+     *
+     * @param subject must not be {@code null}
+     * @return never {@code null}, empty if the subject contains no processing instruction
+     */
+    static Set<String> findTargets(final String subject) {
+        Validate.notNull(subject, "subject");
+        Set<String> targets = Collections.emptySet();
+        int position = 0;
+
+        while (true) {
+            final int tokenBegin = subject.indexOf(START_TOKEN, position);
+
+            if (tokenBegin < 0) {
+                return targets;
+            }
+
+            final int tokenEnd = findWordEnd(subject, tokenBegin);
+            final int targetBegin = tokenBegin + START_TOKEN.length();
+
+            if (isWordBegin(subject, tokenBegin) && tokenEnd > targetBegin) {
+                if (targets.isEmpty()) {
+                    targets = Sets.newHashSet();
+                }
+
+                targets.add(subject.substring(targetBegin, tokenEnd));
+            }
+
+            position = tokenEnd;
+        }
+    }
+
+    /**
+     * Finds the start token which equals the word in the given range.
+     *
+     * @param subject must not be {@code null}
+     * @param begin index of the word's first character
+     * @param end index after the word's last character
+     * @param startTokens must not be {@code null}
+     * @return {@code null} if no start token matches
+     */
+    private static String findStartToken(
+        final String subject, final int begin, final int end, final Set<String> startTokens) {
+        for (final String startToken : startTokens) {
+            if (startToken.length() == end - begin && subject.startsWith(startToken, begin)) {
+                return startToken;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the next end token which is a whole word.
+     *
+     * @param subject must not be {@code null}
+     * @param from index to start searching at
+     * @return index of the end token, or {@code -1} if not found
+     */
+    private static int findEndToken(final String subject, final int from) {
+        int position = from;
+
+        while (true) {
+            final int tokenBegin = subject.indexOf(END_TOKEN, position);
+
+            if (tokenBegin < 0) {
+                return -1;
+            }
+
+            final int tokenEnd = tokenBegin + END_TOKEN.length();
+
+            if (isWordBegin(subject, tokenBegin) && findWordEnd(subject, tokenBegin) == tokenEnd) {
+                return tokenBegin;
+            }
+
+            position = tokenBegin + 1;
+        }
+    }
+
+    /**
+     * Whether a word begins at the given index.
+     *
+     * @param subject must not be {@code null}
+     * @param index must be a valid index of the subject
+     * @return {@code true} if the index is at the beginning or after white space
+     */
+    private static boolean isWordBegin(final String subject, final int index) {
+        return 0 == index || isWhitespace(subject.charAt(index - 1));
+    }
+
+    /**
+     * Finds the end of the word containing the given index.
+     *
+     * @param subject must not be {@code null}
+     * @param index must be a valid index of the subject
+     * @return index of the next white space or length of subject
+     */
+    private static int findWordEnd(final String subject, final int index) {
+        int end = index;
+
+        while (end < subject.length() && !isWhitespace(subject.charAt(end))) {
+            ++end;
+        }
+
+        return end;
+    }
+
+    /**
+     * Whether the character delimits words.
+     *
+     * @param c any character
+     * @return {@code true} for space, tab, line feed, carriage return and form feed
+     */
+    private static boolean isWhitespace(final char c) {
+        return ' ' == c || '\t' == c || '\n' == c || '\r' == c || '\f' == c;
+    }
+
+    /**
+     * Maps the start token of each processor's target to the processor.
+     * <p>
+     * If multiple processors have the same target only the first one is mapped.
+     * </p>
+     *
+     * @param processors must not be {@code null}
+     * @return never {@code null}
+     */
+    static Map<String, PreProcessor> mapStartTokens(final Collection<PreProcessor> processors) {
+        final Map<String, PreProcessor> targets = Maps.newHashMap();
+
+        for (final PreProcessor processor : processors) {
+            final String startToken = START_TOKEN + processor.getTarget();
+
+            if (!targets.containsKey(startToken)) {
+                targets.put(startToken, processor);
             }
         }
 
-        return buffer.toString();
+        return targets;
     }
 
 }
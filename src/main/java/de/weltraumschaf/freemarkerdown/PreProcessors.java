@@ -70,4 +70,29 @@ public final class PreProcessors {
     public static PreProcessor createKeyValueProcessor(final Map<String, String> result, final String target) {
         return new KeyValueProcessor(result, target);
     }
+
+    /**
+     * Provides a pre processor which parses key value pairs into a typed front matter.
+     * <p>
+     * The front matter is read from the same blocks as by {@link #createKeyValueProcessor(java.util.Map)}, but
+     * booleans, numbers, dates and lists are parsed only once. The front matter can be assigned as template variable.
+     * </p>
+     *
+     * @return never {@code null}, always new instance
+     * @since 1.0.1
+     */
+    public static FrontMatterProcessor createFrontMatterProcessor() {
+        return new FrontMatterProcessor();
+    }
+
+    /**
+     * Provides a pre processor which parses key value pairs into a typed front matter for custom target.
+     *
+     * @param target must not be {@code null} or empty
+     * @return never {@code null}, always new instance
+     * @since 1.0.1
+     */
+    public static FrontMatterProcessor createFrontMatterProcessor(final String target) {
+        return new FrontMatterProcessor(target);
+    }
 }
@@ -0,0 +1,46 @@
+package de.weltraumschaf.freemarkerdown;
+
+/**
+ * Notified when an asynchronous rendering is done.
+ * <p>
+ * The callback is invoked by the thread which did the rendering, so it should return fast and must not throw
+ * exceptions. If the rendering is cancelled before it is done, {@link #failed(java.lang.Throwable)} is invoked
+ * with a {@link java.util.concurrent.CancellationException}.
+ * </p>
+ * <p>
+ * The callback replaces a composable future, because this library targets Java 7 which has no
+ * {@code CompletableFuture}. On Java 8 and later a callback may complete one:
+ * </p>
+ * <pre>{@code
+ * final CompletableFuture<String> result = new CompletableFuture<>();
+ * engine.renderAsync(template, executor, new RenderCallback<String>() {
+ *     public void rendered(final String content) {
+ *         result.complete(content);
+ *     }
+ *
+ *     public void failed(final Throwable cause) {
+ *         result.completeExceptionally(cause);
+ *     }
+ * });
+ * }</pre>
+ *
+ * @param <V> type of the rendering result
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+public interface RenderCallback<V> {
+
+    /**
+     * Called when the rendering succeeded.
+     *
+     * @param result result of the rendering, {@code null} for renderings into a writer
+     */
+    void rendered(V result);
+
+    /**
+     * Called when the rendering failed or was cancelled.
+     *
+     * @param cause never {@code null}
+     */
+    void failed(Throwable cause);
+}
@@ -11,5 +11,39 @@ public enum RenderOptions {
     /**
      * Does not convert the result of the rendered template from Markdown into HTML.
      */
-    WITHOUT_MARKDOWN;
+    WITHOUT_MARKDOWN,
+    /**
+     * Caches the rendered content of the template.
+     * <p>
+     * Templates created by {@link FreeMarkerDown} with this option are rendered only once for the same name, template
+     * source and {@link FreeMarkerDown#assignCacheKey(TemplateModel, java.lang.Object) cache key} until the content
+     * expires. The variables are not compared, so the cache key must identify them, e.g. by an id and a version of
+     * the rendered model. Templates without cache key are not cached. On a cache hit no interceptors are invoked and
+     * fragments of layouts are not rendered.
+     * </p>
+     *
+     * @since 1.0.1
+     */
+    CACHEABLE,
+    /**
+     * Converts Markdown block by block while the template is rendered into a writer.
+     * <p>
+     * Applies to {@link FreeMarkerDown#render(TemplateModel, java.io.Writer)} only. Instead of the whole rendered
+     * content only the current Markdown block is held in memory and the HTML of each block is written as soon as the
+     * block is complete. Because each block is converted on its own, reference style links must be defined in the same
+     * paragraph, list or quote in which they are used. The option is ignored if the template is cached or if
+     * interceptors for {@link Interceptor.ExecutionPoint#AFTER_RENDERING},
+     * {@link Interceptor.ExecutionPoint#BEFORE_MARKDOWN} or {@link Interceptor.ExecutionPoint#AFTER_MARKDOWN} are
+     * registered, because they need the whole content.
+     * </p>
+     * <p>
+     * The {@link FreeMarkerDown#setMarkdownMaxInputSize(int) maximum Markdown size} applies to the whole content.
+     * Because the HTML of the previous blocks is already written when it is exceeded, the preformatted fallback only
+     * applies to the rest of the content. The {@link FreeMarkerDown#setMarkdownTimeout(long,
+     * java.util.concurrent.TimeUnit) timeout} applies to each block.
+     * </p>
+     *
+     * @since 1.0.1
+     */
+    STREAMING_MARKDOWN;
 }
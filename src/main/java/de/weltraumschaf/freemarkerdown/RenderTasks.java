@@ -0,0 +1,310 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Lists;
+import de.weltraumschaf.commons.validate.Validate;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Runs render tasks by an executor and waits for all of them.
+ * <p>
+ * The waiting thread runs each task itself which was not started by the executor yet. So tasks which wait for
+ * other tasks (e.g. nested layouts) can not dead lock even if they share an executor with a bounded number of
+ * threads. Tasks rejected by the executor are also run by the waiting thread.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+final class RenderTasks {
+
+    /**
+     * Hidden for pure static class.
+     */
+    private RenderTasks() {
+        super();
+        throw new UnsupportedOperationException("Do not call via reflection!");
+    }
+
+    /**
+     * Runs all tasks and returns their results in the order of the tasks.
+     * <p>
+     * The tasks are run as a group: If a task fails, all other tasks are cancelled at once and the failure is
+     * rethrown. Running tasks are interrupted, so tasks blocked in slow model objects stop waiting. Errors and
+     * runtime exceptions are rethrown unwrapped.
+     * </p>
+     *
+     * @param <V> type of the results
+     * @param tasks must not be {@code null}
+     * @param executor must not be {@code null}
+     * @return never {@code null}
+     */
+    static <V> List<V> invokeAll(final List<? extends Callable<V>> tasks, final Executor executor) {
+        Validate.notNull(tasks, "tasks");
+        Validate.notNull(executor, "executor");
+        final Group<V> group = new Group<>();
+
+        for (final Callable<V> task : tasks) {
+            final FutureTask<V> future = group.add(task);
+
+            try {
+                executor.execute(future);
+            } catch (final RejectedExecutionException ex) {
+                // Nothing to do here: The task will be run by the calling thread while joining.
+            }
+        }
+
+        final List<V> results = Lists.newArrayListWithCapacity(tasks.size());
+
+        try {
+            for (final FutureTask<V> future : group.getTasks()) {
+                results.add(group.join(future));
+            }
+        } finally {
+            if (results.size() < tasks.size()) {
+                group.cancel();
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Creates a task which notifies the given callback when it is done.
+     *
+     * @param <V> type of the result
+     * @param task must not be {@code null}
+     * @param callback may be {@code null}
+     * @return never {@code null}
+     */
+    static <V> FutureTask<V> notifying(final Callable<V> task, final RenderCallback<? super V> callback) {
+        Validate.notNull(task, "task");
+
+        if (null == callback) {
+            return new FutureTask<>(task);
+        }
+
+        return new NotifyingTask<>(task, callback);
+    }
+
+    /**
+     * Waits for the task to finish and returns its result.
+     *
+     * @param <V> type of the result
+     * @param task must not be {@code null}
+     * @return result of the task
+     */
+    private static <V> V get(final FutureTask<V> task) {
+        try {
+            return task.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TemplateError("Interrupted while rendering!", ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new TemplateError("Can't render template!", cause);
+        }
+    }
+
+    /**
+     * Tasks which are cancelled together if one of them fails.
+     *
+     * @param <V> type of the results
+     */
+    @ThreadSafe
+    private static final class Group<V> {
+
+        /**
+         * The tasks of the group.
+         * <p>
+         * Copy on write, because failing tasks cancel the group while tasks are still added.
+         * </p>
+         */
+        private final List<FutureTask<V>> tasks = new CopyOnWriteArrayList<>();
+        /**
+         * The first failure of a task.
+         */
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        /**
+         * Adds a task to the group.
+         *
+         * @param task must not be {@code null}
+         * @return never {@code null}
+         */
+        FutureTask<V> add(final Callable<V> task) {
+            final FutureTask<V> future = new GroupTask(Validate.notNull(task, "task"));
+            tasks.add(future);
+            return future;
+        }
+
+        /**
+         * Get the tasks in order of adding.
+         *
+         * @return never {@code null}
+         */
+        List<FutureTask<V>> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Runs the task if not started yet, waits for it to finish and returns its result.
+         * <p>
+         * If the task was cancelled because another task failed, the failure of the other task is thrown.
+         * </p>
+         *
+         * @param task must not be {@code null}
+         * @return result of the task
+         */
+        V join(final FutureTask<V> task) {
+            final boolean callerInterrupted = Thread.currentThread().isInterrupted();
+            task.run();
+
+            try {
+                return get(task);
+            } catch (final CancellationException ex) {
+                final Throwable cause = failure.get();
+
+                if (null == cause) {
+                    throw ex;
+                }
+
+                // The cancellation may have interrupted the calling thread while it was running the task itself.
+                // That interrupt was only meant to stop the task, but an interrupt of the caller must be kept.
+                if (Thread.interrupted() && callerInterrupted) {
+                    Thread.currentThread().interrupt();
+                }
+
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                throw new TemplateError("Can't render template!", cause);
+            }
+        }
+
+        /**
+         * Cancels and interrupts all not finished tasks.
+         */
+        void cancel() {
+            for (final FutureTask<V> task : tasks) {
+                task.cancel(true);
+            }
+        }
+
+        /**
+         * Remembers the first failure and cancels the other tasks.
+         *
+         * @param cause must not be {@code null}
+         */
+        private void failed(final Throwable cause) {
+            if (failure.compareAndSet(null, cause)) {
+                cancel();
+            }
+        }
+
+        /**
+         * Task which reports its failure to the group.
+         */
+        private final class GroupTask extends FutureTask<V> {
+
+            /**
+             * Dedicated constructor.
+             *
+             * @param task must not be {@code null}
+             */
+            GroupTask(final Callable<V> task) {
+                super(task);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+
+                try {
+                    get();
+                } catch (final ExecutionException ex) {
+                    failed(ex.getCause());
+                } catch (final InterruptedException ex) {
+                    // Can not happen because the task is done.
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * Task which notifies a callback when it is done.
+     *
+     * @param <V> type of the result
+     */
+    private static final class NotifyingTask<V> extends FutureTask<V> {
+
+        /**
+         * Notified when done.
+         */
+        private final RenderCallback<? super V> callback;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param task must not be {@code null}
+         * @param callback must not be {@code null}
+         */
+        NotifyingTask(final Callable<V> task, final RenderCallback<? super V> callback) {
+            super(task);
+            this.callback = Validate.notNull(callback, "callback");
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                callback.failed(new CancellationException("Rendering was cancelled!"));
+                return;
+            }
+
+            final V result;
+
+            try {
+                result = get();
+            } catch (final ExecutionException ex) {
+                callback.failed(ex.getCause());
+                return;
+            } catch (final InterruptedException ex) {
+                // Can not happen because the task is done.
+                Thread.currentThread().interrupt();
+                callback.failed(ex);
+                return;
+            }
+
+            callback.rendered(result);
+        }
+
+    }
+
+}
@@ -0,0 +1,214 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Template source split into plain text and processing instructions.
+ * <p>
+ * The result of scanning a template for processing instructions. It can be {@link #apply(java.util.Map) applied}
+ * to processors as often as needed without scanning the source again.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@Immutable
+final class ScannedTemplate {
+
+    /**
+     * The scanned source.
+     */
+    private final String source;
+    /**
+     * Text and instructions in order of occurrence.
+     */
+    private final List<Segment> segments;
+    /**
+     * Whether the source contains at least one start token of the scanned targets.
+     */
+    private final boolean containsInstructions;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param source must not be {@code null}
+     * @param segments must not be {@code null}
+     * @param containsInstructions whether a start token was found
+     */
+    ScannedTemplate(final String source, final List<Segment> segments, final boolean containsInstructions) {
+        super();
+        this.source = Validate.notNull(source, "source");
+        this.segments = Collections.unmodifiableList(Validate.notNull(segments, "segments"));
+        this.containsInstructions = containsInstructions;
+    }
+
+    /**
+     * Whether the source contains at least one instruction of the scanned targets.
+     *
+     * @return {@code true} if the source will be modified by applying, else {@code false}
+     */
+    boolean containsInstructions() {
+        return containsInstructions;
+    }
+
+    /**
+     * Passes each instruction to its processor and joins the result.
+     * <p>
+     * If the source contains no instructions the source itself is returned.
+     * </p>
+     *
+     * @param processors processors keyed by their start token, must not be {@code null}
+     * @return never {@code null}
+     */
+    String apply(final Map<String, PreProcessor> processors) {
+        Validate.notNull(processors, "processors");
+
+        if (!containsInstructions) {
+            return source;
+        }
+
+        final StringBuilder buffer = new StringBuilder(source.length());
+
+        for (final Segment segment : segments) {
+            if (segment.isInstruction()) {
+                buffer.append(processors.get(segment.getStartToken()).process(segment.getContent(source)));
+            } else {
+                buffer.append(source, segment.getBegin(), segment.getEnd());
+            }
+        }
+
+        return buffer.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ScannedTemplate{"
+            + "segments=" + segments + ", "
+            + "containsInstructions=" + containsInstructions
+            + '}';
+    }
+
+    /**
+     * Either plain text or the content of a processing instruction.
+     * <p>
+     * A segment only holds its range in the source, so no strings are created for plain text.
+     * </p>
+     */
+    @Immutable
+    static final class Segment {
+
+        /**
+         * Start token of the instruction, {@code null} for plain text.
+         */
+        private final String startToken;
+        /**
+         * Index of the first character in the source.
+         */
+        private final int begin;
+        /**
+         * Index after the last character in the source.
+         */
+        private final int end;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param startToken {@code null} for plain text
+         * @param begin must not be negative
+         * @param end must not be less than begin
+         */
+        private Segment(final String startToken, final int begin, final int end) {
+            super();
+
+            if (begin < 0 || end < begin) {
+                throw new IllegalArgumentException(String.format("Invalid range %d..%d!", begin, end));
+            }
+
+            this.startToken = startToken;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        /**
+         * Creates a plain text segment.
+         *
+         * @param begin must not be negative
+         * @param end must not be less than begin
+         * @return never {@code null}
+         */
+        static Segment text(final int begin, final int end) {
+            return new Segment(null, begin, end);
+        }
+
+        /**
+         * Creates an instruction segment.
+         *
+         * @param startToken must not be {@code null}
+         * @param begin must not be negative
+         * @param end must not be less than begin
+         * @return never {@code null}
+         */
+        static Segment instruction(final String startToken, final int begin, final int end) {
+            return new Segment(Validate.notNull(startToken, "startToken"), begin, end);
+        }
+
+        /**
+         * Whether this is a processing instruction.
+         *
+         * @return {@code true} for instructions, {@code false} for plain text
+         */
+        boolean isInstruction() {
+            return null != startToken;
+        }
+
+        /**
+         * Get the start token of the instruction.
+         *
+         * @return {@code null} for plain text
+         */
+        String getStartToken() {
+            return startToken;
+        }
+
+        /**
+         * Get the index of the first character in the source.
+         *
+         * @return not negative
+         */
+        int getBegin() {
+            return begin;
+        }
+
+        /**
+         * Get the index after the last character in the source.
+         *
+         * @return not less than {@link #getBegin()}
+         */
+        int getEnd() {
+            return end;
+        }
+
+        /**
+         * Get the text or instruction content.
+         *
+         * @param source the scanned source, must not be {@code null}
+         * @return never {@code null}
+         */
+        String getContent(final String source) {
+            return source.substring(begin, end);
+        }
+
+        @Override
+        public String toString() {
+            return isInstruction()
+                ? "Instruction{" + startToken + ", " + begin + ".." + end + '}'
+                : "Text{" + begin + ".." + end + '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,177 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import java.io.IOException;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Caches compiled FreeMarker templates.
+ * <p>
+ * Parsing a template is the most expensive part of rendering small templates. Because the
+ * {@link BaseTemplate#getPreProcessedTemplate() preprocessed template} is often identical between renderings
+ * the compiled {@link Template} is reused as long as the template name, the source and the configuration instance
+ * are the same. FreeMarker templates are safe to be processed by multiple threads at once.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+final class TemplateCache {
+
+    /**
+     * Default number of cached templates.
+     */
+    static final int DEFAULT_MAX_SIZE = 512;
+
+    /**
+     * Holds the compiled templates.
+     */
+    private final LruCache<Key, Template> templates;
+    /**
+     * Used to compile templates on cache miss.
+     */
+    private final FreeMarker factory;
+
+    /**
+     * Convenience constructor with {@link #DEFAULT_MAX_SIZE default size}.
+     *
+     * @param factory must not be {@code null}
+     */
+    TemplateCache(final FreeMarker factory) {
+        this(factory, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param factory must not be {@code null}
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    TemplateCache(final FreeMarker factory, final int maxSize) {
+        super();
+        this.factory = Validate.notNull(factory, "factory");
+        this.templates = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Get the compiled template for the given source.
+     * <p>
+     * Compiles the source if it is not cached yet.
+     * </p>
+     *
+     * @param name must not be {@code null}
+     * @param source must not be {@code null}
+     * @param config must not be {@code null}
+     * @return never {@code null}
+     * @throws IOException if template can't be created
+     */
+    Template getTemplate(final String name, final String source, final Configuration config) throws IOException {
+        final Key key = new Key(name, source, config);
+        Template template = templates.get(key);
+
+        if (null == template) {
+            // Compiled outside of the lock: Concurrent misses for the same key only cost a redundant parse.
+            template = factory.createTemplate(source, config);
+            templates.put(key, template);
+        }
+
+        return template;
+    }
+
+    /**
+     * Set the maximum number of cached templates.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    void setMaxSize(final int maxSize) {
+        templates.setMaxSize(maxSize);
+    }
+
+    /**
+     * Removes all compiled templates.
+     */
+    void clear() {
+        templates.clear();
+    }
+
+    /**
+     * Get a snapshot of the cache counters.
+     *
+     * @return never {@code null}
+     */
+    CacheStatistics getStatistics() {
+        return templates.getStatistics();
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateCache{" + "templates=" + templates + '}';
+    }
+
+    /**
+     * Identifies a compiled template.
+     * <p>
+     * The configuration is compared by identity, because FreeMarker configurations are mutable and do not implement
+     * value semantics.
+     * </p>
+     */
+    @Immutable
+    private static final class Key {
+
+        /**
+         * Name of the template.
+         */
+        private final String name;
+        /**
+         * Source of the template.
+         */
+        private final String source;
+        /**
+         * Configuration used to compile the template.
+         */
+        private final Configuration config;
+        /**
+         * Precomputed hash because the source may be large.
+         */
+        private final int hash;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param name must not be {@code null}
+         * @param source must not be {@code null}
+         * @param config must not be {@code null}
+         */
+        Key(final String name, final String source, final Configuration config) {
+            super();
+            this.name = Validate.notNull(name, "name");
+            this.source = Validate.notNull(source, "source");
+            this.config = Validate.notNull(config, "config");
+            this.hash = 31 * (31 * name.hashCode() + source.hashCode()) + System.identityHashCode(config);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return hash == other.hash
+                && config == other.config
+                && name.equals(other.name)
+                && source.equals(other.source);
+        }
+
+    }
+
+}
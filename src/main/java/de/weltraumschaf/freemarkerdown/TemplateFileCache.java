@@ -0,0 +1,247 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Caches the content of template files.
+ * <p>
+ * A file is read only once and then served from the cache. After the {@link #setUpdateDelay(long) update delay}
+ * is over, the modification time and size of the file are checked on the next access and the file is read again
+ * if one of them changed. The compiled FreeMarker template is not cached here: Because the content does not change,
+ * the {@link TemplateCache} serves it.
+ * </p>
+ *
+ * @since 1.0.1
+ * @author Sven Strittmatter
+ */
+@ThreadSafe
+final class TemplateFileCache {
+
+    /**
+     * Holds the file contents.
+     */
+    private final LruCache<Key, Entry> files;
+    /**
+     * Milliseconds to wait before a cached file is checked for modification again.
+     */
+    private volatile long updateDelay;
+    /**
+     * Whether the cache is used at all.
+     */
+    private volatile boolean enabled;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    TemplateFileCache(final int maxSize) {
+        super();
+        this.files = new LruCache<>(maxSize);
+        this.enabled = maxSize > 0;
+    }
+
+    /**
+     * Get the content of the given file.
+     * <p>
+     * Reads the file if it is not cached yet or was modified since it was read. If the maximum size is {@code 0} the
+     * file is read without any cache lookup.
+     * </p>
+     *
+     * @param file must not be {@code null}
+     * @param encoding must not be {@code null}
+     * @return never {@code null}
+     * @throws IOException if file can't be read
+     */
+    String read(final Path file, final String encoding) throws IOException {
+        if (!enabled) {
+            return new String(Files.readAllBytes(file), encoding);
+        }
+
+        final Key key = new Key(file, encoding);
+        final long now = System.currentTimeMillis();
+        final Entry cached = files.get(key);
+
+        if (null != cached && now - cached.getChecked() < updateDelay) {
+            return cached.getContent();
+        }
+
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final long size = attributes.size();
+
+        if (null != cached && cached.isUpToDate(modified, size)) {
+            files.put(key, new Entry(cached.getContent(), modified, size, now));
+            return cached.getContent();
+        }
+
+        final String content = new String(Files.readAllBytes(file), encoding);
+        files.put(key, new Entry(content, modified, size, now));
+        return content;
+    }
+
+    /**
+     * Set the time to wait before a cached file is checked for modification again.
+     *
+     * @param updateDelay must not be negative, {@code 0} checks on each access
+     */
+    void setUpdateDelay(final long updateDelay) {
+        if (updateDelay < 0) {
+            throw new IllegalArgumentException("Parameter 'updateDelay' must not be negative!");
+        }
+
+        this.updateDelay = updateDelay;
+    }
+
+    /**
+     * Set the maximum number of cached files.
+     *
+     * @param maxSize must not be negative, {@code 0} disables caching
+     */
+    void setMaxSize(final int maxSize) {
+        files.setMaxSize(maxSize);
+        enabled = maxSize > 0;
+    }
+
+    /**
+     * Removes all cached files.
+     */
+    void clear() {
+        files.clear();
+    }
+
+    /**
+     * Get a snapshot of the cache counters.
+     *
+     * @return never {@code null}
+     */
+    CacheStatistics getStatistics() {
+        return files.getStatistics();
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateFileCache{" + "files=" + files + ", " + "updateDelay=" + updateDelay + '}';
+    }
+
+    /**
+     * Identifies a cached file.
+     */
+    @Immutable
+    private static final class Key {
+
+        /**
+         * Absolute path of the file.
+         */
+        private final Path file;
+        /**
+         * Encoding used to read the file.
+         */
+        private final String encoding;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param file must not be {@code null}
+         * @param encoding must not be {@code null}
+         */
+        Key(final Path file, final String encoding) {
+            super();
+            this.file = Validate.notNull(file, "file").toAbsolutePath().normalize();
+            this.encoding = Validate.notNull(encoding, "encoding");
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + encoding.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return file.equals(other.file) && encoding.equals(other.encoding);
+        }
+
+    }
+
+    /**
+     * Content of a file and the attributes it was read with.
+     */
+    @Immutable
+    private static final class Entry {
+
+        /**
+         * Content of the file.
+         */
+        private final String content;
+        /**
+         * Modification time in milliseconds when the file was read.
+         */
+        private final long modified;
+        /**
+         * Size in bytes when the file was read.
+         */
+        private final long size;
+        /**
+         * Time in milliseconds when the attributes were checked the last time.
+         */
+        private final long checked;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param content must not be {@code null}
+         * @param modified modification time in milliseconds
+         * @param size size in bytes
+         * @param checked time in milliseconds of the last check
+         */
+        Entry(final String content, final long modified, final long size, final long checked) {
+            super();
+            this.content = Validate.notNull(content, "content");
+            this.modified = modified;
+            this.size = size;
+            this.checked = checked;
+        }
+
+        /**
+         * Get the content of the file.
+         *
+         * @return never {@code null}
+         */
+        String getContent() {
+            return content;
+        }
+
+        /**
+         * Get the time of the last check.
+         *
+         * @return time in milliseconds
+         */
+        long getChecked() {
+            return checked;
+        }
+
+        /**
+         * Whether the file still has the attributes it was read with.
+         *
+         * @param currentModified current modification time in milliseconds
+         * @param currentSize current size in bytes
+         * @return {@code true} if not modified, else {@code false}
+         */
+        boolean isUpToDate(final long currentModified, final long currentSize) {
+            return modified == currentModified && size == currentSize;
+        }
+
+    }
+
+}
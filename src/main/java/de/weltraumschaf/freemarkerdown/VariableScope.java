@@ -1,6 +1,10 @@
 package de.weltraumschaf.freemarkerdown;
 
 import de.weltraumschaf.commons.guava.Maps;
+import de.weltraumschaf.commons.validate.Validate;
+import freemarker.template.ObjectWrapper;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModelException;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
@@ -72,6 +76,56 @@ final class VariableScope {
         return Collections.unmodifiableMap(result);
     }
 
+    /**
+     * Get a variable from this scope or the nearest parent scope which has it.
+     * <p>
+     * In contrast to {@link #getData()} no map is copied.
+     * </p>
+     *
+     * @param name must not be {@code null}
+     * @return {@code null} if no scope has the variable
+     */
+    Object getVariable(final String name) {
+        for (VariableScope scope = this; null != scope; scope = scope.parent) {
+            final Object value = scope.data.getVariable(name);
+
+            if (null != value) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Whether this scope and all parent scopes have no variables.
+     *
+     * @return {@code true} if there are no variables at all, else {@code false}
+     */
+    boolean isEmpty() {
+        for (VariableScope scope = this; null != scope; scope = scope.parent) {
+            if (!scope.data.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Provides the variables of all scopes as FreeMarker data model.
+     * <p>
+     * The returned model resolves the variables lazily through the scope chain, so nothing is copied up front.
+     * The model should only be used for one rendering, because it caches the wrapped variables.
+     * </p>
+     *
+     * @param wrapper must not be {@code null}
+     * @return never {@code null}, always new instance
+     */
+    TemplateHashModel toTemplateModel(final ObjectWrapper wrapper) {
+        return new ScopeHashModel(this, wrapper);
+    }
+
     /**
      * Assign any object as variable.
      *
@@ -106,4 +160,62 @@ final class VariableScope {
                 && Objects.equals(data, other.data);
     }
 
+    /**
+     * Resolves FreeMarker variables through a scope chain.
+     */
+    @NotThreadSafe
+    private static final class ScopeHashModel implements TemplateHashModel {
+
+        /**
+         * Inner most scope.
+         */
+        private final VariableScope scope;
+        /**
+         * Wraps the found variables.
+         */
+        private final ObjectWrapper wrapper;
+        /**
+         * Already wrapped variables, lazily created.
+         */
+        private Map<String, freemarker.template.TemplateModel> wrapped;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param scope must not be {@code null}
+         * @param wrapper must not be {@code null}
+         */
+        ScopeHashModel(final VariableScope scope, final ObjectWrapper wrapper) {
+            super();
+            this.scope = Validate.notNull(scope, "scope");
+            this.wrapper = Validate.notNull(wrapper, "wrapper");
+        }
+
+        @Override
+        public freemarker.template.TemplateModel get(final String key) throws TemplateModelException {
+            if (null != wrapped && wrapped.containsKey(key)) {
+                return wrapped.get(key);
+            }
+
+            final Object value = scope.getVariable(key);
+
+            if (null == value) {
+                return null;
+            }
+
+            if (null == wrapped) {
+                wrapped = Maps.newHashMap();
+            }
+
+            final freemarker.template.TemplateModel model = wrapper.wrap(value);
+            wrapped.put(key, model);
+            return model;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return scope.isEmpty();
+        }
+
+    }
 }
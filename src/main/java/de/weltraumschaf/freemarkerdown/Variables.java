@@ -30,6 +30,25 @@ final class Variables {
         vars.put(Validate.notEmpty(name, "name"), Validate.notNull(value, "value"));
     }
 
+    /**
+     * Get a single assigned variable.
+     *
+     * @param name must not be {@code null}
+     * @return {@code null} if not assigned
+     */
+    Object getVariable(final String name) {
+        return vars.get(Validate.notNull(name, "name"));
+    }
+
+    /**
+     * Whether any variable is assigned.
+     *
+     * @return {@code true} if no variable is assigned, else {@code false}
+     */
+    boolean isEmpty() {
+        return vars.isEmpty();
+    }
+
     /**
      * Get all assigned variables.
      *
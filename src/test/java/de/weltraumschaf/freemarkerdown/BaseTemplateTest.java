@@ -2,12 +2,15 @@ package de.weltraumschaf.freemarkerdown;
 
 import de.weltraumschaf.commons.guava.Lists;
 import de.weltraumschaf.commons.guava.Sets;
+import de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import java.io.IOError;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -86,19 +89,54 @@ public class BaseTemplateTest extends TestCaseBase {
     @Test
     public void apply() {
         final PreProcessor processor = mock(PreProcessor.class);
+        when(processor.getTarget()).thenReturn("foo");
         final PreProcessorApplier applier = mock(PreProcessorApplier.class);
-        when(applier.apply("foobar", processor)).thenReturn("snafu");
+        when(applier.apply("<?foo bar ?>", processor)).thenReturn("snafu");
 
-        final BaseTemplate sut = new BaseTemplateStub("foobar", "utf-8");
+        final BaseTemplate sut = new BaseTemplateStub("<?foo bar ?>", "utf-8");
         sut.setPreProcessorApplier(applier);
-        assertThat(sut.getPreProcessedTemplate(), is("foobar"));
+        assertThat(sut.getPreProcessedTemplate(), is("<?foo bar ?>"));
 
         sut.apply(processor);
 
-        verify(applier, times(1)).apply("foobar", processor);
+        verify(applier, times(1)).apply("<?foo bar ?>", processor);
         assertThat(sut.getPreProcessedTemplate(), is("snafu"));
     }
 
+    @Test
+    public void apply_skipsProcessorWithoutInstructions() {
+        final PreProcessor processor = mock(PreProcessor.class);
+        when(processor.getTarget()).thenReturn("foo");
+        final PreProcessorApplier applier = mock(PreProcessorApplier.class);
+
+        final BaseTemplate sut = new BaseTemplateStub("foobar <?bar baz ?>", "utf-8");
+        sut.setPreProcessorApplier(applier);
+
+        sut.apply(processor);
+
+        verify(applier, never()).apply(anyString(), (PreProcessor) anyObject());
+        assertThat(sut.getPreProcessedTemplate(), is("foobar <?bar baz ?>"));
+    }
+
+    @Test
+    public void applyAll_appliesOnlyProcessorsWithInstructions() {
+        final PreProcessor foo = mock(PreProcessor.class);
+        when(foo.getTarget()).thenReturn("foo");
+        final PreProcessor bar = mock(PreProcessor.class);
+        when(bar.getTarget()).thenReturn("bar");
+        final PreProcessorApplier applier = mock(PreProcessorApplier.class);
+        when(applier.applyAll("<?bar baz ?>", Arrays.asList(bar))).thenReturn("<?foo snafu ?>");
+
+        final BaseTemplate sut = new BaseTemplateStub("<?bar baz ?>", "utf-8");
+        sut.setPreProcessorApplier(applier);
+
+        sut.applyAll(Arrays.asList(foo, bar));
+        assertThat(sut.getPreProcessedTemplate(), is("<?foo snafu ?>"));
+
+        sut.apply(bar);
+        verify(applier, never()).apply(anyString(), (PreProcessor) anyObject());
+    }
+
     @Test
     public void factory_wrappsIoExceptions() throws IOException {
         final FreeMarker factory = spy(FREE_MARKER);
@@ -159,6 +197,97 @@ public class BaseTemplateTest extends TestCaseBase {
         assertThat(sut.getName(), is("name"));
     }
 
+    @Test
+    public void render_intoWriter_withMarkdown() throws IOException {
+        final StringWriter out = new StringWriter();
+
+        new BaseTemplateStub("foo bar baz", ENCODING).render(out);
+
+        assertThat(out.toString(), is("<p>foo bar baz</p>"));
+    }
+
+    @Test
+    public void render_intoWriter_withoutMarkdown() throws IOException {
+        final StringWriter out = new StringWriter();
+        final BaseTemplate sut = new BaseTemplateStub(
+            "foo ${bar} baz", ENCODING, Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN));
+        sut.assignVariable("bar", "snafu");
+
+        sut.render(out);
+
+        assertThat(out.toString(), is("foo snafu baz"));
+    }
+
+    @Test
+    public void render_intoWriter_withoutMarkdown_triggersEvents() throws IOException {
+        final StringWriter out = new StringWriter();
+        final BaseTemplate sut = new BaseTemplateStub(
+            "foo bar baz", ENCODING, Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN));
+        final EventConsumer consumer = mock(EventConsumer.class);
+        when(consumer.isListening((ExecutionPoint) anyObject())).thenReturn(true);
+        sut.register(consumer);
+
+        sut.render(out);
+
+        assertThat(out.toString(), is("foo bar baz"));
+        verify(consumer, times(2)).trigger((Event) anyObject());
+    }
+
+    @Test
+    public void render_intoWriter_withoutMarkdown_streamsIfNobodyListensToRenderedContent() throws IOException {
+        final Writer out = mock(Writer.class);
+        final BaseTemplate sut = new BaseTemplateStub(
+            "foo bar baz", ENCODING, Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN));
+        final EventConsumer consumer = mock(EventConsumer.class);
+        when(consumer.isListening(ExecutionPoint.BEFORE_RENDERING)).thenReturn(true);
+        sut.register(consumer);
+
+        sut.render(out);
+
+        verify(out, never()).write("foo bar baz");
+        verify(consumer, times(1)).trigger((Event) anyObject());
+    }
+
+    @Test
+    public void triggerEvent_skipsConsumersNotListening() {
+        final BaseTemplate sut = new BaseTemplateStub("", ENCODING);
+        final EventConsumer consumer = mock(EventConsumer.class);
+        when(consumer.isListening(ExecutionPoint.AFTER_MARKDOWN)).thenReturn(true);
+        sut.register(consumer);
+
+        sut.render();
+
+        verify(consumer, times(1)).trigger((Event) anyObject());
+    }
+
+    @Test
+    public void triggerEvent_sharesEventBetweenConsumers() {
+        final BaseTemplate sut = new BaseTemplateStub("", ENCODING);
+        final EventConsumer one = mock(EventConsumer.class);
+        when(one.isListening((ExecutionPoint) anyObject())).thenReturn(true);
+        sut.register(one);
+        final EventConsumer two = mock(EventConsumer.class);
+        when(two.isListening((ExecutionPoint) anyObject())).thenReturn(true);
+        sut.register(two);
+        final EventConsumer three = mock(EventConsumer.class);
+        sut.register(three);
+
+        sut.triggerEvent(ExecutionPoint.AFTER_MARKDOWN, "foo");
+
+        verify(one, times(1)).trigger((Event) anyObject());
+        verify(two, times(1)).trigger((Event) anyObject());
+        verify(three, never()).trigger((Event) anyObject());
+        assertThat(sut.isListened(ExecutionPoint.AFTER_MARKDOWN), is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void render_intoWriter_propagatesIoExceptions() throws IOException {
+        final Writer out = mock(Writer.class);
+        doThrow(new IOException("foobar")).when(out).write(anyString());
+
+        new BaseTemplateStub("foo bar baz", ENCODING).render(out);
+    }
+
     private static final class BaseTemplateStub extends BaseTemplate {
 
         public BaseTemplateStub(final String template, final String encoding) {
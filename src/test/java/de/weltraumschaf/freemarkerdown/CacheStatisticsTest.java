@@ -0,0 +1,35 @@
+package de.weltraumschaf.freemarkerdown;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CacheStatistics}.
+ *
+ * @author Sven Strittmatter
+ */
+public class CacheStatisticsTest {
+
+    @Test
+    public void equalsContract() {
+        EqualsVerifier.forClass(CacheStatistics.class).verify();
+    }
+
+    @Test
+    public void getHitRate_zeroIfNoLookups() {
+        assertThat(new CacheStatistics(0, 0, 0, 0, 0).getHitRate(), is(0.0d));
+    }
+
+    @Test
+    public void getHitRate() {
+        assertThat(new CacheStatistics(3, 1, 0, 0, 0).getHitRate(), is(0.75d));
+    }
+
+    @Test
+    public void toStringContainsMembers() {
+        assertThat(new CacheStatistics(1, 2, 3, 4, 5).toString(),
+            is("CacheStatistics{hits=1, misses=2, evictions=3, size=4, maxSize=5}"));
+    }
+}
@@ -0,0 +1,149 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Maps;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link CachingPreProcessorApplier}.
+ *
+ * @author Sven Strittmatter
+ */
+public class CachingPreProcessorApplierTest {
+
+    private final CachingPreProcessorApplier sut = new CachingPreProcessorApplier(10);
+
+    @Test(expected = NullPointerException.class)
+    public void apply_throwsExceptionIfNullPassedInAsSubject() {
+        sut.apply(null, mock(PreProcessor.class));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void apply_throwsExceptionIfNullPassedInAsProcessor() {
+        sut.apply("", null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void applyAll_throwsExceptionIfNullPassedInAsProcessors() {
+        sut.applyAll("", null);
+    }
+
+    @Test
+    public void applyAll_withoutProcessorsDoesNotTouchCache() {
+        assertThat(sut.applyAll("foo", Collections.<PreProcessor>emptyList()), is("foo"));
+        assertThat(sut.getStatistics().getMisses(), is(0L));
+    }
+
+    private static CacheablePreProcessor cacheable(final String target) {
+        final CacheablePreProcessor processor = mock(CacheablePreProcessor.class);
+        when(processor.getTarget()).thenReturn(target);
+        return processor;
+    }
+
+    @Test
+    public void applyAll_cachesOutputOfCacheableProcessors() {
+        final CacheablePreProcessor processor = cacheable("foo");
+        when(processor.process(" bar ")).thenReturn("BAR");
+
+        assertThat(sut.applyAll("Lorem <?foo bar ?> ipsum", Arrays.<PreProcessor>asList(processor)),
+            is("Lorem BAR ipsum"));
+        assertThat(sut.applyAll("Lorem <?foo bar ?> ipsum", Arrays.<PreProcessor>asList(processor)),
+            is("Lorem BAR ipsum"));
+
+        verify(processor, times(1)).process(" bar ");
+        assertThat(sut.getStatistics().getMisses(), is(1L));
+        assertThat(sut.getStatistics().getHits(), is(1L));
+    }
+
+    @Test
+    public void applyAll_doesNotCacheProcessorsWithSideOutputs() {
+        final Map<String, String> first = Maps.newHashMap();
+        final Map<String, String> second = Maps.newHashMap();
+        final String template = "<?fdm-keyvalue\nfoo: bar\n?>\nLorem ipsum";
+
+        assertThat(sut.apply(template, PreProcessors.createKeyValueProcessor(first)), is("\nLorem ipsum"));
+        assertThat(sut.apply(template, PreProcessors.createKeyValueProcessor(second)), is("\nLorem ipsum"));
+
+        assertThat(first, hasEntry("foo", "bar"));
+        assertThat(second, hasEntry("foo", "bar"));
+        assertThat(sut.getStatistics().getHits(), is(0L));
+        assertThat(sut.getStatistics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void applyAll_doesNotCacheIfAnyProcessorIsNotCacheable() {
+        final CacheablePreProcessor foo = cacheable("foo");
+        when(foo.process(" bar ")).thenReturn("FOO");
+        final PreProcessor baz = mock(PreProcessor.class);
+        when(baz.getTarget()).thenReturn("baz");
+        when(baz.process(" snafu ")).thenReturn("BAZ");
+        final String template = "<?foo bar ?> <?baz snafu ?>";
+
+        assertThat(sut.applyAll(template, Arrays.asList(foo, baz)), is("FOO BAZ"));
+        assertThat(sut.applyAll(template, Arrays.asList(foo, baz)), is("FOO BAZ"));
+
+        verify(foo, times(2)).process(" bar ");
+        verify(baz, times(2)).process(" snafu ");
+        assertThat(sut.getStatistics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void applyAll_comparesProcessorsByIdentity() {
+        final CacheablePreProcessor one = cacheable("foo");
+        when(one.process(" bar ")).thenReturn("ONE");
+        final CacheablePreProcessor two = cacheable("foo");
+        when(two.process(" bar ")).thenReturn("TWO");
+
+        assertThat(sut.applyAll("<?foo bar ?>", Arrays.<PreProcessor>asList(one)), is("ONE"));
+        assertThat(sut.applyAll("<?foo bar ?>", Arrays.<PreProcessor>asList(two)), is("TWO"));
+
+        assertThat(sut.getStatistics().getMisses(), is(2L));
+    }
+
+    @Test
+    public void applyAll_comparesSourceByContent() {
+        final CacheablePreProcessor processor = cacheable("foo");
+        when(processor.process(" Aa ")).thenReturn("first");
+        when(processor.process(" BB ")).thenReturn("second");
+
+        assertThat(sut.applyAll("<?foo Aa ?>", Arrays.<PreProcessor>asList(processor)), is("first"));
+        assertThat(sut.applyAll("<?foo BB ?>", Arrays.<PreProcessor>asList(processor)), is("second"));
+    }
+
+    @Test
+    public void applyAll_returnsSubjectIfThereAreNoInstructions() {
+        final PreProcessor processor = cacheable("foo");
+        final String subject = "Lorem ipsum";
+
+        assertThat(sut.applyAll(subject, Arrays.asList(processor)), is(sameInstance(subject)));
+    }
+
+    @Test
+    public void setMaxSize_zeroDisablesCaching() {
+        final PreProcessor processor = cacheable("foo");
+        sut.setMaxSize(0);
+
+        sut.applyAll("Lorem ipsum", Arrays.asList(processor));
+        sut.applyAll("Lorem ipsum", Arrays.asList(processor));
+
+        assertThat(sut.getStatistics().getHits(), is(0L));
+        assertThat(sut.getStatistics().getMisses(), is(0L));
+        assertThat(sut.getStatistics().getSize(), is(0));
+    }
+
+    @Test
+    public void applyAll_withMaxSizeZeroAppliesProcessors() {
+        final CachingPreProcessorApplier disabled = new CachingPreProcessorApplier(0);
+        final CacheablePreProcessor processor = cacheable("foo");
+        when(processor.process(" bar ")).thenReturn("BAR");
+
+        assertThat(disabled.applyAll("Lorem <?foo bar ?> ipsum", Arrays.<PreProcessor>asList(processor)),
+            is("Lorem BAR ipsum"));
+        assertThat(disabled.getStatistics().getMisses(), is(0L));
+    }
+}
@@ -1,6 +1,9 @@
 package de.weltraumschaf.freemarkerdown;
 
 import static de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint.*;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -96,4 +99,31 @@ public class EventDispatcherTest {
         verify(interceptorOne, times(1)).intercept(AFTER_MARKDOWN, template, "");
         verify(interceptorTwo, times(1)).intercept(AFTER_MARKDOWN, template, "");
     }
+
+    @Test
+    public void hasInterceptors() {
+        assertThat(sut.hasInterceptors(), is(false));
+
+        sut.register(interceptorOne, AFTER_MARKDOWN);
+
+        assertThat(sut.hasInterceptors(), is(true));
+    }
+
+    @Test
+    public void isListening() {
+        assertThat(sut.isListening(AFTER_MARKDOWN), is(false));
+
+        sut.register(interceptorOne, AFTER_MARKDOWN);
+
+        assertThat(sut.isListening(AFTER_MARKDOWN), is(true));
+        assertThat(sut.isListening(BEFORE_MARKDOWN), is(false));
+    }
+
+    @Test
+    public void getInterceptors_containsOnlyActivePoints() {
+        sut.register(interceptorOne, AFTER_MARKDOWN);
+
+        assertThat(sut.getInterceptors().size(), is(1));
+        assertThat(sut.getInterceptors().get(AFTER_MARKDOWN), contains(interceptorOne));
+    }
 }
@@ -2,9 +2,25 @@ package de.weltraumschaf.freemarkerdown;
 
 import static de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint.AFTER_MARKDOWN;
 import static de.weltraumschaf.freemarkerdown.Interceptor.ExecutionPoint.BEFORE_MARKDOWN;
+import de.weltraumschaf.commons.guava.Lists;
+import de.weltraumschaf.commons.guava.Maps;
 import freemarker.template.Configuration;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import static org.hamcrest.Matchers.*;
 import org.junit.Test;
@@ -31,6 +47,14 @@ public class FreeMarkerDownTest extends TestCaseBase {
     public final TemporaryFolder tmp = new TemporaryFolder();
     //CHECKSTYLE:ON
 
+    private static final Executor DIRECT = new Executor() {
+
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
     private final EventDispatcher events = new EventDispatcher();
     private final FreeMarkerDown sut = new FreeMarkerDown(FreeMarkerDown.createConfiguration(ENCODING), events);
 
@@ -164,4 +188,650 @@ public class FreeMarkerDownTest extends TestCaseBase {
         assertThat(events.getInterceptors().get(BEFORE_MARKDOWN), contains(interceptorThree));
     }
 
+    @Test
+    public void render_reusesCompiledTemplates() {
+        sut.render(sut.createFragemnt("foo", "one"));
+        sut.render(sut.createFragemnt("foo", "one"));
+
+        assertThat(sut.getTemplateCacheStatistics().getMisses(), is(1L));
+        assertThat(sut.getTemplateCacheStatistics().getHits(), is(1L));
+        assertThat(sut.getTemplateCacheStatistics().getSize(), is(1));
+    }
+
+    @Test
+    public void setTemplateCacheSize() {
+        sut.setTemplateCacheSize(1);
+
+        sut.render(sut.createFragemnt("foo", "one"));
+        sut.render(sut.createFragemnt("bar", "two"));
+
+        assertThat(sut.getTemplateCacheStatistics().getSize(), is(1));
+        assertThat(sut.getTemplateCacheStatistics().getEvictions(), is(1L));
+    }
+
+    @Test
+    public void createFragemnt_fromPath_readsFileOnlyOnce() throws IOException {
+        sut.setTemplateFileCacheSize(10);
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, "foo".getBytes(ENCODING));
+
+        assertThat(sut.render(sut.createFragemnt(file, "one")), is("<p>foo</p>"));
+        assertThat(sut.render(sut.createLayout(file, "two")), is("<p>foo</p>"));
+
+        assertThat(sut.getTemplateFileCacheStatistics().getMisses(), is(1L));
+        assertThat(sut.getTemplateFileCacheStatistics().getHits(), is(1L));
+    }
+
+    @Test
+    public void setTemplateUpdateDelay() throws IOException {
+        sut.setTemplateFileCacheSize(10);
+        sut.setTemplateUpdateDelay(1, TimeUnit.HOURS);
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, "foo".getBytes(ENCODING));
+        sut.createFragemnt(file, "one");
+
+        Files.write(file, "foobar".getBytes(ENCODING));
+
+        assertThat(sut.render(sut.createFragemnt(file, "one")), is("<p>foo</p>"));
+    }
+
+    @Test
+    public void getTemplateFileCacheStatistics_disabledByDefault() throws IOException {
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, "foo".getBytes(ENCODING));
+        sut.createFragemnt(file, "one");
+        sut.createFragemnt(file, "two");
+
+        assertThat(sut.getTemplateFileCacheStatistics().getMaxSize(), is(0));
+        assertThat(sut.getTemplateFileCacheStatistics().getHits(), is(0L));
+        assertThat(sut.getTemplateFileCacheStatistics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void setTemplateFileCacheSize() throws IOException {
+        sut.setTemplateFileCacheSize(10);
+        sut.setTemplateFileCacheSize(0);
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, "foo".getBytes(ENCODING));
+        sut.createFragemnt(file, "one");
+
+        Files.write(file, "foobar".getBytes(ENCODING));
+
+        assertThat(sut.render(sut.createFragemnt(file, "one")), is("<p>foobar</p>"));
+        assertThat(sut.getTemplateFileCacheStatistics().getSize(), is(0));
+    }
+
+    @Test
+    public void render_concurrentlyWithSharedInstance() throws InterruptedException, ExecutionException {
+        final Interceptor interceptor = mock(Interceptor.class);
+        sut.register(interceptor, AFTER_MARKDOWN);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<String>> results = Lists.newArrayList();
+
+        try {
+            for (int i = 0; i < 100; ++i) {
+                final int number = i;
+                results.add(executor.submit(new Callable<String>() {
+
+                    @Override
+                    public String call() {
+                        final Fragment fragment = sut.createFragemnt("foo ${number}", "fragment");
+                        fragment.assignVariable("number", String.valueOf(number));
+                        return sut.render(fragment);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < 100; ++i) {
+                assertThat(results.get(i).get(), is("<p>foo " + i + "</p>"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(interceptor, times(100)).intercept(
+            eq(AFTER_MARKDOWN), (TemplateModel) anyObject(), anyString());
+        assertThat(sut.getTemplateCacheStatistics().getSize(), is(1));
+    }
+
+    @Test
+    public void render_cacheableFragment() {
+        final Fragment one = sut.createFragemnt("foo ${bar}", "fragment", RenderOptions.CACHEABLE);
+        one.assignVariable("bar", "baz");
+        sut.assignCacheKey(one, "baz");
+        final Fragment two = sut.createFragemnt("foo ${bar}", "fragment", RenderOptions.CACHEABLE);
+        two.assignVariable("bar", "baz");
+        sut.assignCacheKey(two, "baz");
+        final Fragment three = sut.createFragemnt("foo ${bar}", "fragment", RenderOptions.CACHEABLE);
+        three.assignVariable("bar", "snafu");
+        sut.assignCacheKey(three, "snafu");
+
+        assertThat(sut.render(one), is("<p>foo baz</p>"));
+        assertThat(sut.render(two), is("<p>foo baz</p>"));
+        assertThat(sut.render(three), is("<p>foo snafu</p>"));
+
+        assertThat(sut.getOutputCacheStatistics().getHits(), is(1L));
+        assertThat(sut.getOutputCacheStatistics().getMisses(), is(2L));
+        assertThat(sut.getTemplateCacheStatistics().getMisses(), is(1L));
+        assertThat(sut.getTemplateCacheStatistics().getHits(), is(1L));
+    }
+
+    @Test
+    public void render_cacheableFragmentInLayout() throws IOException {
+        for (int i = 0; i < 2; ++i) {
+            final Layout layout = sut.createLayout("${content}", "layout", RenderOptions.WITHOUT_MARKDOWN);
+            layout.assignVariable("bar", "baz");
+            final Fragment fragment = sut.createFragemnt("foo ${bar}", "fragment", RenderOptions.CACHEABLE);
+            sut.assignCacheKey(fragment, "baz");
+            layout.assignTemplateModel("content", fragment);
+            final StringWriter out = new StringWriter();
+
+            sut.render(layout, out);
+
+            assertThat(out.toString(), is("<p>foo baz</p>"));
+        }
+
+        assertThat(sut.getOutputCacheStatistics().getHits(), is(1L));
+    }
+
+    @Test
+    public void render_cacheableFragmentWithoutCacheKey() {
+        sut.render(sut.createFragemnt("foo", "fragment", RenderOptions.CACHEABLE));
+        sut.render(sut.createFragemnt("foo", "fragment", RenderOptions.CACHEABLE));
+
+        assertThat(sut.getOutputCacheStatistics().getHits(), is(0L));
+        assertThat(sut.getOutputCacheStatistics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void render_cacheableLayoutDoesNotRenderFragmentsOnCacheHit() {
+        final TemplateModel fragment = mock(TemplateModel.class);
+        when(fragment.render()).thenReturn("foo");
+
+        for (int i = 0; i < 2; ++i) {
+            final Layout layout = sut.createLayout(
+                "${content}", "layout", RenderOptions.WITHOUT_MARKDOWN, RenderOptions.CACHEABLE);
+            layout.assignTemplateModel("content", fragment);
+            sut.assignCacheKey(layout, 1L);
+
+            assertThat(sut.render(layout), is("foo"));
+        }
+
+        verify(fragment, times(1)).render();
+        assertThat(sut.getOutputCacheStatistics().getHits(), is(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assignCacheKey_foreignTemplateModel() {
+        sut.assignCacheKey(mock(TemplateModel.class), "foo");
+    }
+
+    @Test
+    public void render_streamingMarkdownLikeNotStreaming() throws IOException {
+        final String template = "# ${title}\n\nfoo *bar*\nbaz\n\n- one\n\n- two\n\n```\ncode\n\ncode\n```\n\nend";
+        final Fragment streamed = sut.createFragemnt(template, "streamed", RenderOptions.STREAMING_MARKDOWN);
+        streamed.assignVariable("title", "Title");
+        final Fragment notStreamed = sut.createFragemnt(template, "notStreamed");
+        notStreamed.assignVariable("title", "Title");
+        final StringWriter out = new StringWriter();
+
+        sut.render(streamed, out);
+
+        assertThat(out.toString(), is(sut.render(notStreamed)));
+    }
+
+    @Test
+    public void render_notCacheableFragment() {
+        sut.render(sut.createFragemnt("foo", "fragment"));
+        sut.render(sut.createFragemnt("foo", "fragment"));
+
+        assertThat(sut.getOutputCacheStatistics().getHits(), is(0L));
+        assertThat(sut.getOutputCacheStatistics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void setOutputCacheSize() {
+        sut.setOutputCacheSize(0);
+
+        for (int i = 0; i < 2; ++i) {
+            final Fragment fragment = sut.createFragemnt("foo", "fragment", RenderOptions.CACHEABLE);
+            sut.assignCacheKey(fragment, "foo");
+            sut.render(fragment);
+        }
+
+        assertThat(sut.getOutputCacheStatistics().getHits(), is(0L));
+        assertThat(sut.getOutputCacheStatistics().getSize(), is(0));
+    }
+
+    @Test
+    public void clearOutputCache() {
+        final Fragment fragment = sut.createFragemnt("foo", "fragment", RenderOptions.CACHEABLE);
+        sut.assignCacheKey(fragment, "foo");
+        sut.render(fragment);
+        assertThat(sut.getOutputCacheStatistics().getSize(), is(1));
+
+        sut.clearOutputCache();
+
+        assertThat(sut.getOutputCacheStatistics().getSize(), is(0));
+    }
+
+    @Test
+    public void setMarkdownCacheSize() {
+        sut.setMarkdownCacheSize(10);
+
+        final Fragment one = sut.createFragemnt("foo *${bar}*", "one");
+        one.assignVariable("bar", "baz");
+        assertThat(sut.render(one), is("<p>foo <em>baz</em></p>"));
+        assertThat(sut.render(sut.createFragemnt("foo *baz*", "two")), is("<p>foo <em>baz</em></p>"));
+        assertThat(sut.render(sut.createFragemnt("bar", "three")), is("<p>bar</p>"));
+
+        assertThat(sut.getMarkdownCacheStatistics().getHits(), is(1L));
+        assertThat(sut.getMarkdownCacheStatistics().getMisses(), is(2L));
+    }
+
+    @Test
+    public void setMarkdownConverter() {
+        sut.setMarkdownConverter(new MarkdownConverter() {
+
+            @Override
+            public String convert(final String markdown) {
+                return "<div>" + markdown + "</div>";
+            }
+        });
+
+        assertThat(sut.render(sut.createFragemnt("foo", "one")), is("<div>foo</div>"));
+    }
+
+    @Test
+    public void useDefaultMarkdownConverter() {
+        sut.setMarkdownConverter(mock(MarkdownConverter.class));
+
+        sut.useDefaultMarkdownConverter();
+
+        assertThat(sut.render(sut.createFragemnt("foo", "one")), is("<p>foo</p>"));
+    }
+
+    @Test
+    public void renderAll() {
+        final Map<String, String> result = Maps.newHashMap();
+        sut.register(PreProcessors.createKeyValueProcessor(result));
+        final Interceptor interceptor = mock(Interceptor.class);
+        sut.register(interceptor, AFTER_MARKDOWN);
+        final List<TemplateModel> templates = Lists.newArrayList();
+        templates.add(sut.createFragemnt("<?fdm-keyvalue\nfoo: bar\n?>\nfoo", "one"));
+        templates.add(sut.createFragemnt("bar", "two"));
+
+        assertThat(sut.renderAll(templates), contains("<p>foo</p>", "<p>bar</p>"));
+        assertThat(result, hasEntry("foo", "bar"));
+        verify(interceptor, times(2)).intercept(
+            eq(AFTER_MARKDOWN), (TemplateModel) anyObject(), anyString());
+    }
+
+    @Test
+    public void renderAll_withExecutor() {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<TemplateModel> templates = Lists.newArrayList();
+
+        for (int i = 0; i < 100; ++i) {
+            final Fragment fragment = sut.createFragemnt("foo ${number}", "fragment");
+            fragment.assignVariable("number", String.valueOf(i));
+            templates.add(fragment);
+        }
+
+        try {
+            final List<String> contents = sut.renderAll(templates, executor);
+
+            for (int i = 0; i < 100; ++i) {
+                assertThat(contents.get(i), is("<p>foo " + i + "</p>"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void renderAll_withExecutor_rethrowsTemplateError() {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final List<TemplateModel> templates = Lists.newArrayList();
+        templates.add(sut.createFragemnt("foo", "one"));
+        templates.add(sut.createFragemnt("${undefined}", "two"));
+
+        thrown.expect(TemplateError.class);
+        thrown.expectMessage(containsString("undefined"));
+
+        try {
+            sut.renderAll(templates, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void renderAll_withExecutor_rejectsFrontMatterProcessor() {
+        sut.register(PreProcessors.createFrontMatterProcessor());
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Front matter processors can't be used for concurrent rendering, use extract instead!");
+
+        sut.renderAll(Lists.newArrayList(sut.createFragemnt("foo", "one")), DIRECT);
+    }
+
+    @Test
+    public void renderAll_withoutExecutor_acceptsFrontMatterProcessor() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+        sut.register(processor);
+
+        final List<String> contents = sut.renderAll(Lists.newArrayList(
+            sut.createFragemnt("<?fdm-keyvalue\ntitle: foo\n?>\nLorem", "one"),
+            sut.createFragemnt("<?fdm-keyvalue\ntitle: bar\n?>\nIpsum", "two")));
+
+        assertThat(contents, contains("<p>Lorem</p>", "<p>Ipsum</p>"));
+        assertThat(processor.getFrontMatter().getString("title"), is("bar"));
+    }
+
+    @Test
+    public void renderAsync_rejectsFrontMatterProcessor() {
+        sut.register(PreProcessors.createFrontMatterProcessor());
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Front matter processors can't be used for concurrent rendering, use extract instead!");
+
+        sut.renderAsync(sut.createFragemnt("foo", "one"), DIRECT);
+    }
+
+    @Test
+    public void renderAsync_intoWriter_rejectsFrontMatterProcessor() {
+        sut.register(PreProcessors.createFrontMatterProcessor());
+
+        thrown.expect(IllegalStateException.class);
+
+        sut.renderAsync(sut.createFragemnt("foo", "one"), new StringWriter(), DIRECT);
+    }
+
+    @Test
+    public void render_releasesFrontMatterProcessorIfPreProcessingFails() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+        sut.register(processor);
+        final PreProcessor failing = mock(PreProcessor.class);
+        when(failing.getTarget()).thenReturn("foo");
+        when(failing.process(anyString())).thenThrow(new IllegalStateException("failed"));
+        sut.register(failing);
+
+        try {
+            sut.render(sut.createFragemnt("<?foo bar ?>", "one"));
+            fail("Expected IllegalStateException!");
+        } catch (final IllegalStateException ex) {
+            assertThat(ex.getMessage(), is("failed"));
+        }
+
+        assertThat(sut.render(sut.createFragemnt("<?fdm-keyvalue\ntitle: foo\n?>\nLorem", "two")),
+            is("<p>Lorem</p>"));
+        assertThat(processor.getFrontMatter().getString("title"), is("foo"));
+    }
+
+    @Test
+    public void renderAll_emptyBatch() {
+        assertThat(sut.renderAll(Lists.<TemplateModel>newArrayList()), is(empty()));
+    }
+
+    @Test
+    public void renderAsync() throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Layout layout = sut.createLayout("${content}", "layout", RenderOptions.WITHOUT_MARKDOWN);
+        layout.assignTemplateModel("content", sut.createFragemnt("foo", "fragment"));
+
+        try {
+            assertThat(sut.renderAsync(layout, executor).get(), is("<p>foo</p>"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void renderAsync_intoWriter() throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final StringWriter out = new StringWriter();
+
+        try {
+            assertThat(sut.renderAsync(sut.createFragemnt("foo", "one"), out, executor).get(), is(nullValue()));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(out.toString(), is("<p>foo</p>"));
+    }
+
+    @Test
+    public void renderAsync_usesPreProcessorsRegisteredAtCall() throws InterruptedException, ExecutionException {
+        final List<Runnable> queued = Lists.newArrayList();
+        final Executor queuing = new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                queued.add(command);
+            }
+        };
+        final PreProcessor processor = mock(PreProcessor.class);
+        when(processor.getTarget()).thenReturn("foo");
+        when(processor.process(" bar ")).thenReturn("baz");
+
+        final Future<String> result = sut.renderAsync(
+            sut.createFragemnt("<?foo bar ?>", "one", RenderOptions.WITHOUT_MARKDOWN), queuing);
+        sut.register(processor);
+        queued.get(0).run();
+
+        assertThat(result.get(), is("<?foo bar ?>"));
+        verify(processor, never()).process(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void renderAsync_notifiesCallback() {
+        final RenderCallback<String> callback = mock(RenderCallback.class);
+
+        sut.renderAsync(sut.createFragemnt("foo", "one"), DIRECT, callback);
+
+        verify(callback, times(1)).rendered("<p>foo</p>");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void renderAsync_notifiesCallbackOnFailure() {
+        final RenderCallback<String> callback = mock(RenderCallback.class);
+
+        sut.renderAsync(sut.createFragemnt("${undefined}", "one"), DIRECT, callback);
+
+        verify(callback, times(1)).failed(isA(TemplateError.class));
+        verify(callback, never()).rendered(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void renderAsync_intoWriter_notifiesCallback() {
+        final RenderCallback<Object> callback = mock(RenderCallback.class);
+        final StringWriter out = new StringWriter();
+
+        sut.renderAsync(sut.createFragemnt("foo", "one"), out, DIRECT, callback);
+
+        verify(callback, times(1)).rendered(null);
+        assertThat(out.toString(), is("<p>foo</p>"));
+    }
+
+    @Test
+    public void renderAsync_failure() throws InterruptedException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            sut.renderAsync(sut.createFragemnt("${undefined}", "one"), executor).get();
+            fail("Expected exception not thrown!");
+        } catch (final ExecutionException ex) {
+            assertThat(ex.getCause(), is(instanceOf(TemplateError.class)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void render_nestedLayoutsWithSingleThreadedFragmentExecutor() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        sut.setFragmentExecutor(executor);
+        final Layout outer = sut.createLayout("${one} ${inner}", "outer", RenderOptions.WITHOUT_MARKDOWN);
+        outer.assignTemplateModel("one", sut.createFragemnt("foo", "one", RenderOptions.WITHOUT_MARKDOWN));
+        final Layout inner = sut.createLayout("${two} ${three}", "inner", RenderOptions.WITHOUT_MARKDOWN);
+        inner.assignTemplateModel("two", sut.createFragemnt("bar", "two", RenderOptions.WITHOUT_MARKDOWN));
+        inner.assignTemplateModel("three", sut.createFragemnt("baz", "three", RenderOptions.WITHOUT_MARKDOWN));
+        outer.assignTemplateModel("inner", inner);
+
+        try {
+            assertThat(sut.render(outer), is("foo bar baz"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void render_frontMatterAsVariable() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+        sut.register(processor);
+        sut.render(sut.createFragemnt("<?fdm-keyvalue\ntitle: foo\ncount: 41\ntags: a, b\n?>\nLorem", "one"));
+        final Fragment listing = sut.createFragemnt(
+            "${meta.title} ${meta.count + 1}<#list meta.tags?split(\",\") as tag> ${tag?trim}</#list>"
+            + "<#list meta?keys as key> ${key}</#list>",
+            "listing", RenderOptions.WITHOUT_MARKDOWN);
+        listing.assignVariable("meta", processor.getFrontMatter());
+
+        assertThat(sut.render(listing), is("foo 42 a b count tags title"));
+    }
+
+    @Test
+    public void render_templateWithoutFrontMatterResetsFrontMatter() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+        sut.register(processor);
+        sut.render(sut.createFragemnt("<?fdm-keyvalue\ntitle: foo\n?>\nLorem", "one"));
+        assertThat(processor.getFrontMatter().getString("title"), is("foo"));
+
+        sut.render(sut.createFragemnt("Ipsum", "two"));
+
+        assertThat(processor.getFrontMatter().isEmpty(), is(true));
+    }
+
+    @Test
+    public void extract_fromString() {
+        final Map<String, String> result = Maps.newHashMap();
+        final Interceptor interceptor = mock(Interceptor.class);
+        sut.register(interceptor, BEFORE_MARKDOWN);
+
+        final PreProcessor processor = sut.extract(
+            "${foo}\n<?fdm-keyvalue\nfoo: bar\n?>\n<?fdm-keyvalue\nbaz: snafu\n?>",
+            PreProcessors.createKeyValueProcessor(result));
+
+        assertThat(processor, is(notNullValue()));
+        assertThat(result.size(), is(1));
+        assertThat(result, hasEntry("foo", "bar"));
+        verifyZeroInteractions(interceptor);
+    }
+
+    @Test
+    public void extract_withoutInstruction() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+
+        assertThat(sut.extract("Lorem <?fdm-keyvalue foo: bar", processor).getFrontMatter().isEmpty(), is(true));
+    }
+
+    @Test
+    public void extract_fromFile() throws IOException {
+        final StringBuilder template = new StringBuilder("<?fdm-keyvalue\ntitle: foo\ncount: 3\n?>\n");
+
+        for (int i = 0; i < 10000; ++i) {
+            template.append("Lorem ipsum ${dolor}\n");
+        }
+
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, template.toString().getBytes(ENCODING));
+
+        final FrontMatter frontMatter = sut.extract(file, PreProcessors.createFrontMatterProcessor()).getFrontMatter();
+
+        assertThat(frontMatter.getString("title"), is("foo"));
+        assertThat(frontMatter.getLong("count", 0), is(3L));
+    }
+
+    @Test
+    public void extract_fromFileWithInstructionAfterFirstChunk() throws IOException {
+        final StringBuilder template = new StringBuilder();
+
+        for (int i = 0; i < 1000; ++i) {
+            template.append("Lorem ipsum\n");
+        }
+
+        template.append("<?fdm-keyvalue\ntitle: foo\n?>");
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, template.toString().getBytes(ENCODING));
+
+        assertThat(sut.extract(file, PreProcessors.createFrontMatterProcessor()).getFrontMatter().getString("title"),
+            is("foo"));
+    }
+
+    @Test
+    public void extract_readsOnlyChunksUntilInstructionIsClosed() throws IOException {
+        final StringBuilder template = new StringBuilder("<?fdm-keyvalue\ntitle: foo\n?>\n");
+
+        for (int i = 0; i < 10000; ++i) {
+            template.append("Lorem ipsum\n");
+        }
+
+        final byte[] bytes = template.toString().getBytes(StandardCharsets.UTF_8);
+        final ByteArrayInputStream source = new ByteArrayInputStream(bytes);
+
+        final FrontMatter frontMatter = FreeMarkerDown.extract(
+            Channels.newChannel(source), StandardCharsets.UTF_8, PreProcessors.createFrontMatterProcessor())
+            .getFrontMatter();
+
+        assertThat(frontMatter.getString("title"), is("foo"));
+        assertThat(bytes.length - source.available(), is(FreeMarkerDown.EXTRACTION_CHUNK_SIZE));
+    }
+
+    @Test
+    public void setPreProcessingCacheSize_cachesOutputOfCacheableProcessors() {
+        final CacheablePreProcessor processor = mock(CacheablePreProcessor.class);
+        when(processor.getTarget()).thenReturn("upper");
+        when(processor.process(" foo ")).thenReturn("FOO");
+        sut.register(processor);
+        sut.setPreProcessingCacheSize(10);
+        final String template = "<?upper foo ?> Lorem ipsum";
+
+        assertThat(sut.render(sut.createFragemnt(template, "one")), is("<p>FOO Lorem ipsum</p>"));
+        assertThat(sut.render(sut.createFragemnt(template, "two")), is("<p>FOO Lorem ipsum</p>"));
+
+        verify(processor, times(1)).process(" foo ");
+        assertThat(sut.getPreProcessingCacheStatistics().getHits(), is(1L));
+        assertThat(sut.getPreProcessingCacheStatistics().getMisses(), is(1L));
+    }
+
+    @Test
+    public void setPreProcessingCacheSize_alwaysAppliesProcessorsWithSideOutputs() {
+        final Map<String, String> result = Maps.newHashMap();
+        sut.register(PreProcessors.createKeyValueProcessor(result));
+        sut.setPreProcessingCacheSize(10);
+        final String template = "<?fdm-keyvalue\nfoo: bar\n?>\nLorem ipsum";
+
+        assertThat(sut.render(sut.createFragemnt(template, "one")), is("<p>Lorem ipsum</p>"));
+        result.clear();
+        assertThat(sut.render(sut.createFragemnt(template, "two")), is("<p>Lorem ipsum</p>"));
+
+        assertThat(result, hasEntry("foo", "bar"));
+        assertThat(sut.getPreProcessingCacheStatistics().getHits(), is(0L));
+        assertThat(sut.getPreProcessingCacheStatistics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void getPreProcessingCacheStatistics_disabledByDefault() {
+        sut.register(PreProcessors.createKeyValueProcessor(Maps.<String, String>newHashMap()));
+
+        sut.render(sut.createFragemnt("foo", "one"));
+        sut.render(sut.createFragemnt("foo", "two"));
+
+        assertThat(sut.getPreProcessingCacheStatistics().getMaxSize(), is(0));
+        assertThat(sut.getPreProcessingCacheStatistics().getHits(), is(0L));
+    }
+
 }
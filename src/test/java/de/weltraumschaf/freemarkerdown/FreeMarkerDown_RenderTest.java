@@ -1,10 +1,17 @@
 package de.weltraumschaf.freemarkerdown;
 
 import de.weltraumschaf.commons.guava.Sets;
+import java.io.IOException;
+import java.io.StringWriter;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import org.junit.Test;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -120,4 +127,72 @@ public class FreeMarkerDown_RenderTest extends TestCaseBase{
                 + "Lorem ipsum dolor.\n"
                 + "bar bla blub"));
     }
+
+    @Test(expected = NullPointerException.class)
+    public void render_intoWriter_nullTemplatePassedIn() throws IOException {
+        sut.render(null, new StringWriter());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void render_intoWriter_nullWriterPassedIn() throws IOException {
+        sut.render(sut.createFragemnt("", "name"), null);
+    }
+
+    @Test
+    public void render_intoWriter_fragment_withPreProcessors() throws IOException {
+        final Fragment renderable = sut.createFragemnt(
+                "<?foo snafu ?>\n"
+                + "Lorem ipsum dolor.",
+                "name",
+                RenderOptions.WITHOUT_MARKDOWN);
+        final PreProcessor one = mock(PreProcessor.class);
+        when(one.getTarget()).thenReturn("foo");
+        when(one.process(" snafu ")).thenReturn("foo");
+        sut.register(one);
+        final StringWriter out = new StringWriter();
+
+        sut.render(renderable, out);
+
+        assertThat(out.toString(), is(
+                "foo\n"
+                + "Lorem ipsum dolor."));
+    }
+
+    @Test
+    public void render_intoWriter_foreignTemplateModel() throws IOException {
+        final TemplateModel renderable = mock(TemplateModel.class);
+        when(renderable.render()).thenReturn("foo bar baz");
+        final StringWriter out = new StringWriter();
+
+        sut.render(renderable, out);
+
+        assertThat(out.toString(), is("foo bar baz"));
+    }
+
+    @Test
+    public void render_intoWriter_unregistersEventsIfPreProcessingFails() throws IOException {
+        final Fragment renderable = sut.createFragemnt(
+                "<?foo snafu ?>\n"
+                + "Lorem ipsum dolor.",
+                "name",
+                RenderOptions.WITHOUT_MARKDOWN);
+        final PreProcessor one = mock(PreProcessor.class);
+        when(one.getTarget()).thenReturn("foo");
+        when(one.process(" snafu ")).thenThrow(new IllegalStateException("failed"));
+        sut.register(one);
+        final Interceptor interceptor = mock(Interceptor.class);
+        sut.register(interceptor, Interceptor.ExecutionPoint.BEFORE_RENDERING);
+
+        try {
+            sut.render(renderable, new StringWriter());
+            fail("Expected IllegalStateException!");
+        } catch (final IllegalStateException ex) {
+            assertThat(ex.getMessage(), is("failed"));
+        }
+
+        renderable.render();
+
+        verify(interceptor, never()).intercept(
+            any(Interceptor.ExecutionPoint.class), any(TemplateModel.class), anyString());
+    }
 }
@@ -0,0 +1,190 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Maps;
+import de.weltraumschaf.commons.guava.Lists;
+import freemarker.template.TemplateBooleanModel;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateDateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateModelIterator;
+import freemarker.template.TemplateNumberModel;
+import freemarker.template.TemplateScalarModel;
+import freemarker.template.TemplateSequenceModel;
+import java.util.List;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Map;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FrontMatter}.
+ *
+ * @author Sven Strittmatter
+ */
+public class FrontMatterTest {
+
+    private final FrontMatter sut;
+
+    public FrontMatterTest() {
+        super();
+        final Map<String, String> pairs = Maps.newHashMap();
+        pairs.put("title", "Hello, World");
+        pairs.put("count", "42");
+        pairs.put("negative", "-3");
+        pairs.put("padded", "007");
+        pairs.put("pi", "3.14");
+        pairs.put("trailing", "1.50");
+        pairs.put("draft", "false");
+        pairs.put("published", "2016-02-29");
+        pairs.put("invalid", "2015-02-29");
+        pairs.put("keywords", " foo, bar,, baz ");
+        sut = new FrontMatter(pairs);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void construct_withNullAsPairs() {
+        new FrontMatter(null);
+    }
+
+    @Test
+    public void getKeys_sorted() {
+        assertThat(sut.size(), is(10));
+        assertThat(sut.isEmpty(), is(false));
+        assertThat(sut.getKeys(), contains("count", "draft", "invalid", "keywords", "negative", "padded",
+            "pi", "published", "title", "trailing"));
+        assertThat(sut.getKeys().get(0), is(sameInstance("count")));
+    }
+
+    @Test
+    public void empty() {
+        assertThat(FrontMatter.EMPTY.isEmpty(), is(true));
+        assertThat(FrontMatter.EMPTY.getKeys(), is(empty()));
+        assertThat(FrontMatter.EMPTY.get("foo"), is(nullValue()));
+    }
+
+    @Test
+    public void containsKey() {
+        assertThat(sut.containsKey("title"), is(true));
+        assertThat(sut.containsKey("foo"), is(false));
+        assertThat(sut.containsKey(null), is(false));
+    }
+
+    @Test
+    public void getString_originalText() {
+        assertThat(sut.getString("count"), is("42"));
+        assertThat(sut.getString("keywords"), is(" foo, bar,, baz "));
+        assertThat(sut.getString("foo"), is(nullValue()));
+    }
+
+    @Test
+    public void getLong() {
+        assertThat(sut.getLong("count", 0), is(42L));
+        assertThat(sut.getLong("negative", 0), is(-3L));
+        assertThat(sut.getLong("padded", 23), is(23L));
+        assertThat(sut.getLong("pi", 23), is(23L));
+        assertThat(sut.getLong("foo", 23), is(23L));
+    }
+
+    @Test
+    public void getDouble() {
+        assertThat(sut.getDouble("pi", 0), is(3.14));
+        assertThat(sut.getDouble("count", 0), is(42.0));
+        assertThat(sut.getDouble("trailing", 2.5), is(2.5));
+        assertThat(sut.getDouble("foo", 2.5), is(2.5));
+    }
+
+    @Test
+    public void getBoolean() {
+        assertThat(sut.getBoolean("draft", true), is(false));
+        assertThat(sut.getBoolean("title", true), is(true));
+        assertThat(sut.getBoolean("foo", true), is(true));
+    }
+
+    @Test
+    public void getDate() {
+        assertThat(sut.getDate("published"), is(new GregorianCalendar(2016, Calendar.FEBRUARY, 29).getTime()));
+        assertThat(sut.getDate("invalid"), is(nullValue()));
+        assertThat(sut.getDate("foo"), is(nullValue()));
+    }
+
+    @Test
+    public void getDate_alwaysNewInstance() {
+        final Date date = sut.getDate("published");
+        date.setTime(0);
+
+        assertThat(sut.getDate("published"), is(not(date)));
+    }
+
+    @Test
+    public void getList() {
+        assertThat(sut.getList("keywords"), contains("foo", "bar", "baz"));
+        assertThat(sut.getList("count"), contains("42"));
+        assertThat(sut.getList("foo"), is(empty()));
+    }
+
+    @Test
+    public void get_typedTemplateModels() throws TemplateModelException {
+        assertThat(((TemplateNumberModel) sut.get("count")).getAsNumber(), is((Number) 42L));
+        assertThat(((TemplateNumberModel) sut.get("pi")).getAsNumber(), is((Number) 3.14));
+        assertThat(((TemplateBooleanModel) sut.get("draft")).getAsBoolean(), is(false));
+        assertThat(((TemplateDateModel) sut.get("published")).getDateType(), is(TemplateDateModel.DATE));
+        assertThat(sut.get("padded"), is(not(instanceOf(TemplateNumberModel.class))));
+        assertThat(sut.get("foo"), is(nullValue()));
+    }
+
+    @Test
+    public void get_valuesAreAlsoScalars() throws TemplateModelException {
+        assertThat(((TemplateScalarModel) sut.get("count")).getAsString(), is("42"));
+        assertThat(((TemplateScalarModel) sut.get("draft")).getAsString(), is("false"));
+        assertThat(((TemplateScalarModel) sut.get("published")).getAsString(), is("2016-02-29"));
+    }
+
+    @Test
+    public void get_textIsOnlyString() throws TemplateModelException {
+        assertThat(sut.get("keywords"), is(not(instanceOf(TemplateSequenceModel.class))));
+        assertThat(((TemplateScalarModel) sut.get("keywords")).getAsString(), is(" foo, bar,, baz "));
+    }
+
+    @Test
+    public void keys() throws TemplateModelException {
+        assertThat(asStrings(sut.keys()), contains("count", "draft", "invalid", "keywords", "negative", "padded",
+            "pi", "published", "title", "trailing"));
+        assertThat(asStrings(FrontMatter.EMPTY.keys()), is(empty()));
+    }
+
+    @Test
+    public void values() throws TemplateModelException {
+        final List<String> values = asStrings(sut.values());
+
+        assertThat(values.size(), is(10));
+        assertThat(values.get(0), is("42"));
+        assertThat(values.get(8), is("Hello, World"));
+    }
+
+    private static List<String> asStrings(final TemplateCollectionModel collection) throws TemplateModelException {
+        final List<String> result = Lists.newArrayList();
+        final TemplateModelIterator iterator = collection.iterator();
+
+        while (iterator.hasNext()) {
+            result.add(((TemplateScalarModel) iterator.next()).getAsString());
+        }
+
+        return result;
+    }
+
+    @Test
+    public void equalsAndHashCode() {
+        final Map<String, String> pairs = Maps.newHashMap();
+        pairs.put("foo", "1");
+        final Map<String, String> other = Maps.newHashMap();
+        other.put("foo", "2");
+
+        assertThat(new FrontMatter(pairs), is(equalTo(new FrontMatter(pairs))));
+        assertThat(new FrontMatter(pairs).hashCode(), is(new FrontMatter(pairs).hashCode()));
+        assertThat(new FrontMatter(pairs), is(not(equalTo(new FrontMatter(other)))));
+    }
+
+}
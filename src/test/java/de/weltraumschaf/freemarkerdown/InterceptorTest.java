@@ -258,6 +258,20 @@ public class InterceptorTest extends TestCaseBase {
         verify(interceptor, never()).intercept(AFTER_MARKDOWN, layout, "<p>layout: <p>foo bar baz</p></p>");
     }
 
+    @Test
+    public void interceptFragment_preprocessingOnceForAllPreprocessors() {
+        final Fragment fragment = fmd.createFragemnt("foo bar baz", "fragment");
+        fmd.register(new PreProcessorStub());
+        fmd.register(new PreProcessorStub());
+        fmd.register(interceptor, BEFORE_PREPROCESSING);
+        fmd.register(interceptor, AFTER_PREPROCESSING);
+
+        fmd.render(fragment);
+
+        verify(interceptor, times(1)).intercept(BEFORE_PREPROCESSING, fragment, "foo bar baz");
+        verify(interceptor, times(1)).intercept(AFTER_PREPROCESSING, fragment, "foo bar baz");
+    }
+
     private static class PreProcessorStub implements PreProcessor {
 
         @Override
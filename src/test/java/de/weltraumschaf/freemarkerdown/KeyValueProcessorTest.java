@@ -163,4 +163,23 @@ public class KeyValueProcessorTest {
         assertThat(result.size(), is(1));
         assertThat(result, hasEntry("foo", ""));
     }
+
+    @Test
+    public void process_withCarriageReturnLineFeeds() {
+        assertThat(sut.process("\r\n  foo: bar\r\n// baz: snafu\r\n\tbaz:\r\n"), is(""));
+
+        assertThat(sut.getWarnings(), contains("Empty value given: 'baz'! Set vlaue empty."));
+        assertThat(result.size(), is(2));
+        assertThat(result, hasEntry("foo", "bar"));
+        assertThat(result, hasEntry("baz", ""));
+    }
+
+    @Test
+    public void process_valueEndsAtNextSplitToken() {
+        assertThat(sut.process("foo: bar : baz" + NL), is(""));
+
+        assertThat(sut.hasWarnings(), is(false));
+        assertThat(result, hasEntry("foo", "bar"));
+    }
+
 }
@@ -4,11 +4,17 @@ import de.weltraumschaf.commons.guava.Lists;
 import de.weltraumschaf.commons.guava.Sets;
 import freemarker.template.TemplateException;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import org.junit.Test;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for {@link Layout}.
@@ -203,4 +209,138 @@ public class LayoutTest extends TestCaseBase {
                 + "<p>baz</p>\n"
         ));
     }
+
+    @Test
+    public void render_intoWriter_withOneFragement() throws IOException {
+        final LayoutImpl sut = new LayoutImpl("<p>${fragmentOne}</p>\n",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name");
+        sut.assignTemplateModel("fragmentOne",
+                new FragmentImpl("foo",
+                        ENCODING,
+                        FREE_MARKER.createConfiguration(ENCODING),
+                        Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                        "name")
+        );
+        final StringWriter out = new StringWriter();
+
+        sut.render(out);
+
+        assertThat(out.toString(), is("<p>foo</p>\n"));
+    }
+
+    @Test
+    public void render_withFragmentExecutor() {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final LayoutImpl sut = new LayoutImpl(
+                "<p>${fragmentOne}</p>\n"
+                + "<p>${fragmentTwo}</p>\n"
+                + "<p>${fragmentThree}</p>\n",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"
+        );
+        sut.setFragmentExecutor(executor);
+        sut.assignTemplateModel("fragmentOne", new FragmentImpl(
+                "foo",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"));
+        sut.assignTemplateModel("fragmentTwo", new FragmentImpl(
+                "bar",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"));
+        sut.assignTemplateModel("fragmentThree", new FragmentImpl(
+                "baz",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"));
+
+        try {
+            assertThat(sut.render(), is(
+                    "<p>foo</p>\n"
+                    + "<p>bar</p>\n"
+                    + "<p>baz</p>\n"
+            ));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void render_withFragmentExecutor_rethrowsTemplateError() {
+        final Executor executor = new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                new Thread(command).start();
+            }
+        };
+        final LayoutImpl sut = new LayoutImpl(
+                "${fragmentOne} ${fragmentTwo}",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"
+        );
+        sut.setFragmentExecutor(executor);
+        sut.assignTemplateModel("fragmentOne", new FragmentImpl(
+                "foo",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"));
+        sut.assignTemplateModel("fragmentTwo", new FragmentImpl(
+                "${undefined}",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"));
+
+        try {
+            sut.render();
+            fail("Expected error not thrown!");
+        } catch (final TemplateError err) {
+            assertThat(err.getMessage(), containsString("undefined"));
+        }
+    }
+
+    @Test
+    public void render_withRejectingFragmentExecutor() {
+        final LayoutImpl sut = new LayoutImpl(
+                "${fragmentOne} ${fragmentTwo}",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"
+        );
+        sut.setFragmentExecutor(new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        sut.assignTemplateModel("fragmentOne", new FragmentImpl(
+                "foo",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"));
+        sut.assignTemplateModel("fragmentTwo", new FragmentImpl(
+                "bar",
+                ENCODING,
+                FREE_MARKER.createConfiguration(ENCODING),
+                Sets.newHashSet(RenderOptions.WITHOUT_MARKDOWN),
+                "name"));
+
+        assertThat(sut.render(), is("foo bar"));
+    }
 }
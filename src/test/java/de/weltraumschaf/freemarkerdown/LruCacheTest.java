@@ -0,0 +1,140 @@
+package de.weltraumschaf.freemarkerdown;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LruCache}.
+ *
+ * @author Sven Strittmatter
+ */
+public class LruCacheTest {
+
+    private final LruCache<String, String> sut = new LruCache<>(2);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_throwsExceptionIfMaxSizeIsNegative() {
+        new LruCache<String, String>(-1);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void get_throwsExceptionIfKeyIsNull() {
+        sut.get(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void put_throwsExceptionIfKeyIsNull() {
+        sut.put(null, "foo");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void put_throwsExceptionIfValueIsNull() {
+        sut.put("foo", null);
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        assertThat(sut.get("foo"), is(nullValue()));
+
+        sut.put("foo", "bar");
+
+        assertThat(sut.get("foo"), is("bar"));
+        assertThat(sut.get("foo"), is("bar"));
+        assertThat(sut.getStatistics(), is(new CacheStatistics(2, 1, 0, 1, 2)));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        final LruCache<String, String> cache = new LruCache<>(3);
+        cache.put("foo", "1");
+        cache.put("bar", "2");
+        cache.put("baz", "3");
+        cache.get("foo");
+        cache.put("snafu", "4");
+
+        assertThat(cache.get("bar"), is(nullValue()));
+        assertThat(cache.get("baz"), is(nullValue()));
+        assertThat(cache.get("foo"), is("1"));
+        assertThat(cache.get("snafu"), is("4"));
+        assertThat(cache.getStatistics().getEvictions(), is(2L));
+        assertThat(cache.getStatistics().getSize(), is(2));
+    }
+
+    @Test
+    public void put_evictsBatchFromSmallCache() {
+        for (int i = 0; i < 10; ++i) {
+            sut.put("key" + i, "value" + i);
+            assertThat(sut.get("key" + i), is("value" + i));
+        }
+
+        // Each eviction removes two entries, so only every second put over capacity evicts.
+        assertThat(sut.getStatistics().getEvictions(), is(8L));
+        assertThat(sut.getStatistics().getSize(), is(2));
+    }
+
+    @Test
+    public void put_keepsLastEntryInCacheOfSizeOne() {
+        final LruCache<String, String> cache = new LruCache<>(1);
+
+        for (int i = 0; i < 5; ++i) {
+            cache.put("key" + i, "value" + i);
+            assertThat(cache.get("key" + i), is("value" + i));
+        }
+
+        assertThat(cache.getStatistics().getEvictions(), is(4L));
+        assertThat(cache.getStatistics().getSize(), is(1));
+    }
+
+    @Test
+    public void put_evictsSixteenthOfLargeCache() {
+        final LruCache<Integer, Integer> cache = new LruCache<>(64);
+
+        for (int i = 0; i <= 64; ++i) {
+            cache.put(i, i);
+        }
+
+        assertThat(cache.getStatistics().getEvictions(), is(5L));
+        assertThat(cache.getStatistics().getSize(), is(60));
+        assertThat(cache.get(64), is(64));
+        assertThat(cache.get(0), is(nullValue()));
+    }
+
+    @Test
+    public void put_doesNothingIfMaxSizeIsZero() {
+        sut.setMaxSize(0);
+
+        sut.put("foo", "bar");
+
+        assertThat(sut.get("foo"), is(nullValue()));
+        assertThat(sut.getStatistics().getSize(), is(0));
+    }
+
+    @Test
+    public void setMaxSize_evictsExceedingEntries() {
+        sut.put("foo", "1");
+        sut.put("bar", "2");
+
+        sut.setMaxSize(1);
+
+        assertThat(sut.get("foo"), is(nullValue()));
+        assertThat(sut.get("bar"), is("2"));
+        assertThat(sut.getStatistics().getEvictions(), is(1L));
+    }
+
+    @Test
+    public void clear() {
+        sut.put("foo", "1");
+        sut.put("bar", "2");
+
+        sut.clear();
+
+        assertThat(sut.getStatistics().getSize(), is(0));
+        assertThat(sut.get("foo"), is(nullValue()));
+    }
+
+    @Test
+    public void toStringContainsMembers() {
+        assertThat(sut.toString(), is("LruCache{maxSize=2, hits=0, misses=0, evictions=0, size=0}"));
+    }
+}
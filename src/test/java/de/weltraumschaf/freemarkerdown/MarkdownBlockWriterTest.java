@@ -0,0 +1,185 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Lists;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MarkdownBlockWriter}.
+ *
+ * @author Sven Strittmatter
+ */
+public class MarkdownBlockWriterTest {
+
+    private final List<String> blocks = Lists.newArrayList();
+    private final MarkdownProcessor markdown = new MarkdownProcessor();
+    private final StringWriter out = new StringWriter();
+    private final MarkdownBlockWriter sut = new MarkdownBlockWriter(out, markdown);
+
+    public MarkdownBlockWriterTest() {
+        super();
+        markdown.setConverter(new MarkdownConverter() {
+
+            @Override
+            public String convert(final String block) {
+                blocks.add(block);
+                return "<" + block.trim() + ">";
+            }
+        });
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void construct_withNullAsOut() {
+        new MarkdownBlockWriter(null, markdown);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void construct_withNullAsMarkdown() {
+        new MarkdownBlockWriter(out, null);
+    }
+
+    @Test
+    public void write_convertsCompletedBlocksBeforeFinish() throws IOException {
+        sut.write("foo\nbar\n\nbaz\n");
+
+        assertThat(blocks, contains("foo\nbar\n\n"));
+        assertThat(out.toString(), is("<foo\nbar>"));
+
+        sut.finish();
+
+        assertThat(blocks, contains("foo\nbar\n\n", "baz\n"));
+        assertThat(out.toString(), is("<foo\nbar>\n<baz>"));
+    }
+
+    @Test
+    public void write_inPieces() throws IOException {
+        sut.write("fo");
+        sut.write("o\n");
+        sut.write(new char[] {'\n', 'b', 'a', 'r'});
+        sut.finish();
+
+        assertThat(blocks, contains("foo\n\n", "bar"));
+    }
+
+    @Test
+    public void write_keepsListsTogether() throws IOException {
+        sut.write("- foo\n\n- bar\n\n1. baz\n\n    indented\n\nsnafu");
+        sut.finish();
+
+        assertThat(blocks, contains("- foo\n\n- bar\n\n1. baz\n\n    indented\n\n", "snafu"));
+    }
+
+    @Test
+    public void write_keepsQuotesAndHtmlTogether() throws IOException {
+        sut.write("> foo\n\n> bar\n\n<div>\n\n</div>\n\nbaz");
+        sut.finish();
+
+        assertThat(blocks, contains("> foo\n\n> bar\n\n<div>\n\n</div>\n\n", "baz"));
+    }
+
+    @Test
+    public void write_keepsFencedCodeTogether() throws IOException {
+        sut.write("```\nfoo\n\nbar\n```\n\n~~~\n\nbaz\n~~~\n\nsnafu\n");
+        sut.finish();
+
+        assertThat(blocks, contains("```\nfoo\n\nbar\n```\n\n", "~~~\n\nbaz\n~~~\n\n", "snafu\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void construct_withZeroMaxBlockSize() {
+        new MarkdownBlockWriter(out, markdown, 0);
+    }
+
+    @Test
+    public void write_splitsBlocksExceedingMaxBlockSize() throws IOException {
+        final MarkdownBlockWriter writer = new MarkdownBlockWriter(out, markdown, 8);
+
+        writer.write("foo\nbar\nbaz\nsnafu\n");
+        writer.finish();
+
+        assertThat(blocks, contains("foo\nbar\n", "baz\nsnafu\n"));
+    }
+
+    @Test
+    public void write_splitsLinesExceedingMaxBlockSize() throws IOException {
+        final MarkdownBlockWriter writer = new MarkdownBlockWriter(out, markdown, 5);
+
+        writer.write("abcdefghijkl");
+        writer.finish();
+
+        assertThat(blocks, contains("abcde", "fghij", "kl"));
+    }
+
+    @Test
+    public void write_reopensSplitFencedCode() throws IOException {
+        final MarkdownBlockWriter writer = new MarkdownBlockWriter(out, markdown, 12);
+
+        writer.write("```java\naaaa\nbbbb\n```\nend\n");
+        writer.finish();
+
+        assertThat(blocks, contains("```java\naaaa\n```\n", "```java\nbbbb\n```\n", "end\n"));
+    }
+
+    @Test
+    public void write_maxInputSizeAppliesToWholeStream() throws IOException {
+        markdown.setMaxInputSize(12);
+        final MarkdownBlockWriter writer = new MarkdownBlockWriter(out, markdown);
+
+        writer.write("foo\n\nbar\n\n<baz>\n");
+        writer.finish();
+
+        assertThat(blocks, contains("foo\n\n"));
+        assertThat(out.toString(), is("<foo>\n<pre>bar\n\n&lt;baz&gt;\n</pre>"));
+    }
+
+    @Test
+    public void close_afterFinishDoesNotWriteAgain() throws IOException {
+        markdown.setMaxInputSize(12);
+        final MarkdownBlockWriter writer = new MarkdownBlockWriter(out, markdown);
+
+        writer.write("foo\n\nbar\n\n<baz>\n");
+        writer.finish();
+        writer.close();
+
+        assertThat(out.toString(), is("<foo>\n<pre>bar\n\n&lt;baz&gt;\n</pre>"));
+    }
+
+    @Test
+    public void close_afterFinishDoesNotConvertAgain() throws IOException {
+        sut.write("foo");
+        sut.finish();
+        sut.close();
+
+        assertThat(blocks, contains("foo"));
+        assertThat(out.toString(), is("<foo>"));
+    }
+
+    @Test
+    public void write_maxInputSizeWithErrorFallback() throws IOException {
+        markdown.setMaxInputSize(12);
+        markdown.setFallback(MarkdownFallback.ERROR);
+        final MarkdownBlockWriter writer = new MarkdownBlockWriter(out, markdown);
+
+        try {
+            writer.write("foo\n\nbar\n\nbaz\n");
+            fail("Expected exception not thrown!");
+        } catch (final TemplateError err) {
+            assertThat(err.getMessage(), is("Markdown exceeds maximum of 12 characters!"));
+        }
+    }
+
+    @Test
+    public void finish_withoutContent() throws IOException {
+        sut.write("\n\n  \n");
+        sut.finish();
+
+        assertThat(blocks, is(empty()));
+        assertThat(out.toString(), is(""));
+    }
+
+}
@@ -0,0 +1,202 @@
+package de.weltraumschaf.freemarkerdown;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link MarkdownProcessor}.
+ *
+ * @author Sven Strittmatter
+ */
+public class MarkdownProcessorTest {
+
+    private final MarkdownProcessor sut = new MarkdownProcessor();
+
+    @Test(expected = NullPointerException.class)
+    public void markdownToHtml_throwsExceptionIfNullPassedIn() {
+        sut.markdownToHtml(null);
+    }
+
+    @Test
+    public void markdownToHtml() {
+        assertThat(sut.markdownToHtml("foo *bar* baz"), is("<p>foo <em>bar</em> baz</p>"));
+        assertThat(sut.markdownToHtml("## snafu"), is("<h2>snafu</h2>"));
+    }
+
+    @Test
+    public void markdownToHtml_fromOtherThread() throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            final Future<String> result = executor.submit(new Callable<String>() {
+
+                @Override
+                public String call() {
+                    return sut.markdownToHtml("foo *bar* baz");
+                }
+            });
+
+            assertThat(sut.markdownToHtml("foo"), is("<p>foo</p>"));
+            assertThat(result.get(), is("<p>foo <em>bar</em> baz</p>"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void markdownToHtml_withoutCache() {
+        sut.markdownToHtml("foo");
+        sut.markdownToHtml("foo");
+
+        assertThat(sut.getStatistics().getHits(), is(0L));
+        assertThat(sut.getStatistics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void markdownToHtml_withCache() {
+        sut.setCacheSize(10);
+
+        assertThat(sut.markdownToHtml("foo *bar* baz"), is("<p>foo <em>bar</em> baz</p>"));
+        assertThat(sut.markdownToHtml("foo *bar* baz"), is("<p>foo <em>bar</em> baz</p>"));
+        assertThat(sut.markdownToHtml("## snafu"), is("<h2>snafu</h2>"));
+
+        assertThat(sut.getStatistics().getHits(), is(1L));
+        assertThat(sut.getStatistics().getMisses(), is(2L));
+        assertThat(sut.getStatistics().getSize(), is(2));
+    }
+
+    @Test
+    public void setCacheSize_disablesCache() {
+        sut.setCacheSize(10);
+        sut.markdownToHtml("foo");
+
+        sut.setCacheSize(0);
+        sut.markdownToHtml("foo");
+
+        assertThat(sut.getStatistics().getHits(), is(0L));
+        assertThat(sut.getStatistics().getSize(), is(0));
+    }
+
+    @Test
+    public void markdownToHtml_tooLarge_preformatted() {
+        sut.setMaxInputSize(5);
+
+        assertThat(sut.markdownToHtml("*a* <b>"), is("<pre>*a* &lt;b&gt;</pre>"));
+        assertThat(sut.markdownToHtml("*a*"), is("<p><em>a</em></p>"));
+    }
+
+    @Test(expected = TemplateError.class)
+    public void markdownToHtml_tooLarge_error() {
+        sut.setMaxInputSize(5);
+        sut.setFallback(MarkdownFallback.ERROR);
+
+        sut.markdownToHtml("*a* <b>");
+    }
+
+    @Test
+    public void markdownToHtml_timeout() {
+        sut.setMaxParsingTime(1L);
+        final StringBuilder markdown = new StringBuilder();
+
+        for (int i = 0; i < 100000; ++i) {
+            markdown.append("[*foo* _bar_ `baz` <snafu> ");
+        }
+
+        assertThat(sut.markdownToHtml(markdown.toString()), startsWith("<pre>[*foo* _bar_ `baz` &lt;snafu&gt; "));
+        assertThat(sut.getTimeouts(), is(1L));
+    }
+
+    @Test
+    public void escapeHtml() {
+        assertThat(MarkdownProcessor.escapeHtml("<a href=\"x\">'&'</a>"),
+            is("&lt;a href=&quot;x&quot;&gt;&#39;&amp;&#39;&lt;/a&gt;"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxParsingTime_mustBeGreaterThanZero() {
+        sut.setMaxParsingTime(0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxInputSize_mustNotBeNegative() {
+        sut.setMaxInputSize(-1);
+    }
+
+    @Test
+    public void markdownToHtml_withCustomConverter() {
+        final MarkdownConverter converter = mock(MarkdownConverter.class);
+        when(converter.convert("foo")).thenReturn("<p>bar</p>");
+        sut.setConverter(converter);
+
+        assertThat(sut.markdownToHtml("foo"), is("<p>bar</p>"));
+    }
+
+    @Test
+    public void markdownToHtml_abortedByCustomConverter() {
+        sut.setConverter(mock(MarkdownConverter.class));
+
+        assertThat(sut.markdownToHtml("<foo>"), is("<pre>&lt;foo&gt;</pre>"));
+        assertThat(sut.getTimeouts(), is(1L));
+    }
+
+    @Test
+    public void setConverter_clearsCache() {
+        sut.setCacheSize(10);
+        sut.markdownToHtml("foo");
+        final MarkdownConverter converter = mock(MarkdownConverter.class);
+        when(converter.convert("foo")).thenReturn("<p>bar</p>");
+
+        sut.setConverter(converter);
+
+        assertThat(sut.markdownToHtml("foo"), is("<p>bar</p>"));
+    }
+
+    @Test
+    public void setMaxParsingTime_doesNotReplaceCustomConverter() {
+        final MarkdownConverter converter = mock(MarkdownConverter.class);
+        when(converter.convert("foo")).thenReturn("<p>bar</p>");
+        sut.setConverter(converter);
+
+        sut.setMaxParsingTime(100L);
+
+        assertThat(sut.markdownToHtml("foo"), is("<p>bar</p>"));
+    }
+
+    @Test
+    public void useDefaultConverter_appliesMaxParsingTimeSetForCustomConverter() {
+        sut.setConverter(mock(MarkdownConverter.class));
+        sut.setMaxParsingTime(1L);
+        final StringBuilder markdown = new StringBuilder();
+
+        for (int i = 0; i < 100000; ++i) {
+            markdown.append("[*foo* _bar_ `baz` <snafu> ");
+        }
+
+        sut.useDefaultConverter();
+
+        assertThat(sut.markdownToHtml(markdown.toString()), startsWith("<pre>[*foo* _bar_ `baz` &lt;snafu&gt; "));
+        assertThat(sut.getTimeouts(), is(1L));
+    }
+
+    @Test
+    public void useDefaultConverter_clearsCache() {
+        final MarkdownConverter converter = mock(MarkdownConverter.class);
+        when(converter.convert("foo")).thenReturn("<p>bar</p>");
+        sut.setCacheSize(10);
+        sut.setConverter(converter);
+        sut.markdownToHtml("foo");
+
+        sut.useDefaultConverter();
+
+        assertThat(sut.markdownToHtml("foo"), is("<p>foo</p>"));
+    }
+}
@@ -0,0 +1,95 @@
+package de.weltraumschaf.freemarkerdown;
+
+import java.util.Collections;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OutputCache}.
+ *
+ * @author Sven Strittmatter
+ */
+public class OutputCacheTest {
+
+    private final OutputCache sut = new OutputCache();
+
+    private static OutputCache.Key key(final String source, final Object cacheKey) {
+        return new OutputCache.Key("name", source, Collections.singleton(RenderOptions.CACHEABLE), cacheKey);
+    }
+
+    @Test
+    public void get_notCached() {
+        assertThat(sut.get(key("source", "bar")), is(nullValue()));
+        assertThat(sut.getStatistics().getMisses(), is(1L));
+    }
+
+    @Test
+    public void get_cached() {
+        sut.put(key("source", "bar"), "content");
+
+        assertThat(sut.get(key("source", "bar")), is("content"));
+        assertThat(sut.getStatistics().getHits(), is(1L));
+    }
+
+    @Test
+    public void get_differentCacheKey() {
+        sut.put(key("source", "bar"), "content");
+
+        assertThat(sut.get(key("source", "baz")), is(nullValue()));
+    }
+
+    @Test
+    public void get_differentSource() {
+        sut.put(key("source", "bar"), "content");
+
+        assertThat(sut.get(key("other", "bar")), is(nullValue()));
+    }
+
+    @Test
+    public void key_comparesSourceByContent() {
+        final OutputCache.Key one = key(new String("source"), 42L);
+        final OutputCache.Key two = key(new String("source"), 42L);
+
+        assertThat(one, is(equalTo(two)));
+        assertThat(one.hashCode(), is(two.hashCode()));
+        assertThat(one, is(not(equalTo(key("sourcf", 42L)))));
+    }
+
+    @Test
+    public void get_sourceWithSameHashAndLength() {
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+        sut.put(key("Aa", "bar"), "first");
+
+        assertThat(sut.get(key("BB", "bar")), is(nullValue()));
+        sut.put(key("BB", "bar"), "second");
+        assertThat(sut.get(key("Aa", "bar")), is("first"));
+        assertThat(sut.get(key("BB", "bar")), is("second"));
+    }
+
+    @Test
+    public void get_expired() throws InterruptedException {
+        sut.setTimeToLive(1L);
+        sut.put(key("source", "bar"), "content");
+        Thread.sleep(10L);
+
+        assertThat(sut.get(key("source", "bar")), is(nullValue()));
+        assertThat(sut.getStatistics().getHits(), is(0L));
+        assertThat(sut.getStatistics().getMisses(), is(1L));
+    }
+
+    @Test
+    public void clear() {
+        sut.put(key("source", "bar"), "content");
+
+        sut.clear();
+
+        assertThat(sut.get(key("source", "bar")), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTimeToLive_mustNotBeNegative() {
+        sut.setTimeToLive(-1L);
+    }
+
+}
@@ -0,0 +1,41 @@
+package de.weltraumschaf.freemarkerdown;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PegDownConverter}.
+ *
+ * @author Sven Strittmatter
+ */
+public class PegDownConverterTest {
+
+    @Test(expected = NullPointerException.class)
+    public void convert_throwsExceptionIfNullPassedIn() {
+        new PegDownConverter().convert(null);
+    }
+
+    @Test
+    public void convert() {
+        assertThat(new PegDownConverter().convert("foo *bar* baz"), is("<p>foo <em>bar</em> baz</p>"));
+    }
+
+    @Test
+    public void convert_returnsNullIfParsingTimeExceeded() {
+        final StringBuilder markdown = new StringBuilder();
+
+        for (int i = 0; i < 100000; ++i) {
+            markdown.append("[*foo* _bar_ `baz` <snafu> ");
+        }
+
+        assertThat(new PegDownConverter(1L).convert(markdown.toString()), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxParsingTimeMustBeGreaterThanZero() {
+        new PegDownConverter(0L);
+    }
+
+}
@@ -1,9 +1,17 @@
 package de.weltraumschaf.freemarkerdown;
 
+import java.util.Arrays;
+import java.util.Collections;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import org.junit.Test;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -96,4 +104,100 @@ public class PreProcessorApplierTest {
             + "magna aliquyam erat, sed diam."));
     }
 
+    @Test(expected = NullPointerException.class)
+    public void applyAll_throwsExceptionIfNullPassedInAsSubject() {
+        sut.applyAll(null, Collections.<PreProcessor>emptyList());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void applyAll_throwsExceptionIfNullPassedInAsProcessors() {
+        sut.applyAll("", null);
+    }
+
+    @Test
+    public void applyAll_withoutProcessors() {
+        assertThat(sut.applyAll("Lorem <?foo foo ?> ipsum", Collections.<PreProcessor>emptyList()),
+            is("Lorem <?foo foo ?> ipsum"));
+    }
+
+    @Test
+    public void applyAll_dispatchesInstructionsToProcessorByTarget() {
+        final PreProcessor foo = mock(PreProcessor.class);
+        when(foo.getTarget()).thenReturn("foo");
+        when(foo.process(" foo foo foo ")).thenReturn("FOO");
+        final PreProcessor bar = mock(PreProcessor.class);
+        when(bar.getTarget()).thenReturn("bar");
+        when(bar.process(" bar bar bar ")).thenReturn("BAR");
+
+        assertThat(sut.applyAll(
+            "Lorem ipsum dolor sit amet,\n"
+            + "<?foo foo foo foo ?>\n"
+            + "consetetur sadipscing elitr,\n"
+            + "<?bar bar bar bar ?>\n"
+            + "<?baz baz baz baz ?>\n"
+            + "sed diam nonumy eirmod tempor", Arrays.asList(foo, bar)),
+            is("Lorem ipsum dolor sit amet,\n"
+            + "FOO\n"
+            + "consetetur sadipscing elitr,\n"
+            + "BAR\n"
+            + "<?baz baz baz baz ?>\n"
+            + "sed diam nonumy eirmod tempor"));
+    }
+
+    @Test
+    public void applyAll_appliesOnlyFirstProcessorWithSameTarget() {
+        final PreProcessor first = mock(PreProcessor.class);
+        when(first.getTarget()).thenReturn("foo");
+        when(first.process(" foo ")).thenReturn("FIRST");
+        final PreProcessor second = mock(PreProcessor.class);
+        when(second.getTarget()).thenReturn("foo");
+
+        assertThat(sut.applyAll("Lorem <?foo foo ?> ipsum", Arrays.asList(first, second)),
+            is("Lorem FIRST ipsum"));
+        verify(second, never()).process(anyString());
+    }
+
+    @Test
+    public void apply_recognizesTokensOnlyAsWholeWords() {
+        final PreProcessor processor = mock(PreProcessor.class);
+        when(processor.getTarget()).thenReturn("foo");
+        when(processor.process(" a<?foo b?> c ")).thenReturn("FOO");
+
+        assertThat(sut.apply("x<?foo y <?foobar z <?foo a<?foo b?> c ?>", processor), is("x<?foo y <?foobar z FOO"));
+    }
+
+    @Test
+    public void apply_dropsUnclosedInstruction() {
+        final PreProcessor processor = mock(PreProcessor.class);
+        when(processor.getTarget()).thenReturn("foo");
+        when(processor.process(" foo ")).thenReturn("FOO");
+
+        assertThat(sut.apply("Lorem <?foo foo ?> ipsum <?foo dolor", processor), is("Lorem FOO ipsum "));
+    }
+
+    @Test
+    public void findTargets_withoutInstructions() {
+        assertThat(PreProcessorApplierImpl.findTargets("Lorem <? ipsum x<?foo ?>"), is(empty()));
+    }
+
+    @Test
+    public void findTargets() {
+        assertThat(PreProcessorApplierImpl.findTargets("<?foo a ?> Lorem\n<?bar b ?> <?foo c ?> <?baz"),
+            containsInAnyOrder("foo", "bar", "baz"));
+    }
+
+    @Test
+    public void findInstruction() {
+        assertThat(PreProcessorApplierImpl.findInstruction("x<?foo a ?> <?foobar b ?> <?foo c ?> <?foo d ?>", "foo", true),
+            is(" c "));
+        assertThat(PreProcessorApplierImpl.findInstruction("Lorem <?foo c", "foo", true), is(nullValue()));
+    }
+
+    @Test
+    public void findInstruction_inIncompleteSubject() {
+        assertThat(PreProcessorApplierImpl.findInstruction("Lorem <?foo", "foo", false), is(nullValue()));
+        assertThat(PreProcessorApplierImpl.findInstruction("Lorem <?foo c ?>", "foo", false), is(nullValue()));
+        assertThat(PreProcessorApplierImpl.findInstruction("Lorem <?foo c ?>\n", "foo", false), is(" c "));
+    }
+
 }
@@ -43,4 +43,74 @@ public class PreProcessorsTest {
         assertThat(one, is(not(sameInstance(three))));
         assertThat(two, is(not(sameInstance(three))));
     }
+
+    @Test
+    public void createFrontMatterProcessor() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+
+        assertThat(processor.getTarget(), is("fdm-keyvalue"));
+        assertThat(processor.getFrontMatter().isEmpty(), is(true));
+        assertThat(processor.process("\n  title: foo\n  count: 3\n"), is(""));
+        assertThat(processor.getFrontMatter().getString("title"), is("foo"));
+        assertThat(processor.getFrontMatter().getLong("count", 0), is(3L));
+    }
+
+    @Test
+    public void createFrontMatterProcessor_reusesFrontMatterOfSameBlock() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor("meta");
+        processor.process("title: foo");
+        final FrontMatter first = processor.getFrontMatter();
+
+        processor.process("title: foo");
+        assertThat(processor.getFrontMatter(), is(sameInstance(first)));
+
+        processor.process("count: 3");
+        assertThat(processor.getFrontMatter().containsKey("title"), is(false));
+        assertThat(processor.getTarget(), is("meta"));
+    }
+
+    @Test
+    public void createFrontMatterProcessor_beginForgetsFrontMatterButKeepsParsedBlock() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+        processor.process("title: foo");
+        final FrontMatter first = processor.getFrontMatter();
+
+        processor.begin();
+        assertThat(processor.getFrontMatter().isEmpty(), is(true));
+
+        processor.process("title: foo");
+        processor.end();
+        assertThat(processor.getFrontMatter(), is(sameInstance(first)));
+    }
+
+    @Test
+    public void createFrontMatterProcessor_beginWhileProcessingAnotherTemplate() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+        processor.begin();
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Front matter processor is already used by another rendering!");
+
+        processor.begin();
+    }
+
+    @Test
+    public void createFrontMatterProcessor_beginAfterEnd() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+        processor.begin();
+        processor.end();
+        processor.begin();
+
+        assertThat(processor.getFrontMatter().isEmpty(), is(true));
+    }
+
+    @Test
+    public void createFrontMatterProcessor_collectsWarnings() {
+        final FrontMatterProcessor processor = PreProcessors.createFrontMatterProcessor();
+
+        processor.process("foo");
+
+        assertThat(processor.hasWarnings(), is(true));
+        assertThat(processor.getFrontMatter().isEmpty(), is(true));
+    }
 }
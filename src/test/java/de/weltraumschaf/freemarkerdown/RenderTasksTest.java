@@ -0,0 +1,230 @@
+package de.weltraumschaf.freemarkerdown;
+
+import de.weltraumschaf.commons.guava.Lists;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link RenderTasks}.
+ *
+ * @author Sven Strittmatter
+ */
+public class RenderTasksTest {
+
+    private final List<Runnable> queued = Lists.newArrayList();
+    private final Executor queuing = new Executor() {
+
+        @Override
+        public void execute(final Runnable command) {
+            queued.add(command);
+        }
+    };
+
+    private static Callable<String> task(final String result) {
+        return new Callable<String>() {
+
+            @Override
+            public String call() {
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void invokeAll_returnsResultsInOrder() {
+        final List<Callable<String>> tasks = Lists.newArrayList();
+        tasks.add(task("foo"));
+        tasks.add(task("bar"));
+        tasks.add(task("baz"));
+
+        assertThat(RenderTasks.invokeAll(tasks, queuing), contains("foo", "bar", "baz"));
+        assertThat(queued.size(), is(3));
+    }
+
+    @Test
+    public void invokeAll_runsRejectedTasksInCallingThread() {
+        final List<Callable<String>> tasks = Lists.newArrayList();
+        tasks.add(task("foo"));
+        tasks.add(task("bar"));
+
+        final List<String> results = RenderTasks.invokeAll(tasks, new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+
+        assertThat(results, contains("foo", "bar"));
+    }
+
+    @Test
+    public void invokeAll_cancelsRemainingTasksOnFailure() {
+        final List<Callable<String>> tasks = Lists.newArrayList();
+        tasks.add(task("foo"));
+        tasks.add(new Callable<String>() {
+
+            @Override
+            public String call() {
+                throw new TemplateError("snafu", new Throwable());
+            }
+        });
+        tasks.add(task("baz"));
+
+        try {
+            RenderTasks.invokeAll(tasks, queuing);
+            fail("Expected error not thrown!");
+        } catch (final TemplateError err) {
+            assertThat(err.getMessage(), is("snafu"));
+        }
+
+        assertThat(((FutureTask<?>) queued.get(0)).isCancelled(), is(false));
+        assertThat(((FutureTask<?>) queued.get(2)).isCancelled(), is(true));
+    }
+
+    @Test
+    public void invokeAll_interruptsRunningTasksOnFailure() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final List<Callable<String>> tasks = Lists.newArrayList();
+        tasks.add(new Callable<String>() {
+
+            @Override
+            public String call() throws InterruptedException {
+                started.countDown();
+
+                try {
+                    new CountDownLatch(1).await();
+                } catch (final InterruptedException ex) {
+                    interrupted.countDown();
+                    throw ex;
+                }
+
+                return "foo";
+            }
+        });
+        tasks.add(new Callable<String>() {
+
+            @Override
+            public String call() throws InterruptedException {
+                started.await();
+                throw new TemplateError("snafu", new Throwable());
+            }
+        });
+
+        try {
+            RenderTasks.invokeAll(tasks, new Executor() {
+
+                @Override
+                public void execute(final Runnable command) {
+                    new Thread(command).start();
+                }
+            });
+            fail("Expected error not thrown!");
+        } catch (final TemplateError err) {
+            assertThat(err.getMessage(), is("snafu"));
+        }
+
+        assertThat(interrupted.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(Thread.currentThread().isInterrupted(), is(false));
+    }
+
+    @Test
+    public void invokeAll_keepsInterruptOfCallingThread() {
+        final List<Callable<String>> tasks = Lists.newArrayList();
+        tasks.add(task("foo"));
+        tasks.add(new Callable<String>() {
+
+            @Override
+            public String call() {
+                throw new TemplateError("snafu", new Throwable());
+            }
+        });
+        Thread.currentThread().interrupt();
+
+        try {
+            RenderTasks.invokeAll(tasks, new Executor() {
+
+                @Override
+                public void execute(final Runnable command) {
+                    if (queued.isEmpty()) {
+                        queued.add(command);
+                    } else {
+                        // Fails and cancels the queued task before the calling thread joins it.
+                        command.run();
+                    }
+                }
+            });
+            fail("Expected error not thrown!");
+        } catch (final TemplateError err) {
+            assertThat(err.getMessage(), is("snafu"));
+        } finally {
+            assertThat(Thread.interrupted(), is(true));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void notifying_notifiesResult() {
+        final RenderCallback<String> callback = mock(RenderCallback.class);
+        final FutureTask<String> task = RenderTasks.notifying(task("foo"), callback);
+
+        task.run();
+
+        verify(callback, times(1)).rendered("foo");
+        verify(callback, never()).failed(any(Throwable.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void notifying_notifiesFailure() {
+        final RenderCallback<String> callback = mock(RenderCallback.class);
+        final IllegalStateException failure = new IllegalStateException();
+        final FutureTask<String> task = RenderTasks.notifying(new Callable<String>() {
+
+            @Override
+            public String call() {
+                throw failure;
+            }
+        }, callback);
+
+        task.run();
+
+        verify(callback, times(1)).failed(failure);
+        verify(callback, never()).rendered(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void notifying_notifiesCancellation() {
+        final RenderCallback<String> callback = mock(RenderCallback.class);
+        final FutureTask<String> task = RenderTasks.notifying(task("foo"), callback);
+
+        task.cancel(false);
+        task.run();
+
+        verify(callback, times(1)).failed(isA(CancellationException.class));
+        verify(callback, never()).rendered(anyString());
+    }
+
+    @Test
+    public void notifying_withoutCallback() {
+        final FutureTask<String> task = RenderTasks.notifying(task("foo"), null);
+
+        task.run();
+
+        assertThat(task.isDone(), is(true));
+    }
+
+}
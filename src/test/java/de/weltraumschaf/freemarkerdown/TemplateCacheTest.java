@@ -0,0 +1,75 @@
+package de.weltraumschaf.freemarkerdown;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import java.io.IOException;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link TemplateCache}.
+ *
+ * @author Sven Strittmatter
+ */
+public class TemplateCacheTest extends TestCaseBase {
+
+    private final FreeMarker factory = spy(FREE_MARKER);
+    private final Configuration config = FREE_MARKER.createConfiguration(ENCODING);
+    private final TemplateCache sut = new TemplateCache(factory);
+
+    @Test
+    public void getTemplate_compilesOnlyOnceForSameSource() throws IOException {
+        final Template one = sut.getTemplate("name", "foo ${bar}", config);
+        final Template two = sut.getTemplate("name", "foo ${bar}", config);
+
+        assertThat(one, is(sameInstance(two)));
+        verify(factory, times(1)).createTemplate("foo ${bar}", config);
+        assertThat(sut.getStatistics().getHits(), is(1L));
+        assertThat(sut.getStatistics().getMisses(), is(1L));
+    }
+
+    @Test
+    public void getTemplate_compilesForDifferentSource() throws IOException {
+        final Template one = sut.getTemplate("name", "foo", config);
+        final Template two = sut.getTemplate("name", "bar", config);
+
+        assertThat(one, is(not(sameInstance(two))));
+    }
+
+    @Test
+    public void getTemplate_compilesForDifferentName() throws IOException {
+        final Template one = sut.getTemplate("one", "foo", config);
+        final Template two = sut.getTemplate("two", "foo", config);
+
+        assertThat(one, is(not(sameInstance(two))));
+    }
+
+    @Test
+    public void getTemplate_compilesForDifferentConfiguration() throws IOException {
+        final Template one = sut.getTemplate("name", "foo", config);
+        final Template two = sut.getTemplate("name", "foo", FREE_MARKER.createConfiguration(ENCODING));
+
+        assertThat(one, is(not(sameInstance(two))));
+    }
+
+    @Test
+    public void setMaxSize_zeroDisablesCaching() throws IOException {
+        sut.setMaxSize(0);
+
+        final Template one = sut.getTemplate("name", "foo", config);
+        final Template two = sut.getTemplate("name", "foo", config);
+
+        assertThat(one, is(not(sameInstance(two))));
+    }
+
+    @Test
+    public void clear() throws IOException {
+        final Template one = sut.getTemplate("name", "foo", config);
+
+        sut.clear();
+
+        assertThat(sut.getTemplate("name", "foo", config), is(not(sameInstance(one))));
+    }
+}
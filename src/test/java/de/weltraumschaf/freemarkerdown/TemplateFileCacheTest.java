@@ -0,0 +1,127 @@
+package de.weltraumschaf.freemarkerdown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link TemplateFileCache}.
+ *
+ * @author Sven Strittmatter
+ */
+public class TemplateFileCacheTest extends TestCaseBase {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final TemporaryFolder tmp = new TemporaryFolder();
+    //CHECKSTYLE:ON
+
+    private final TemplateFileCache sut = new TemplateFileCache(10);
+
+    private Path write(final Path file, final String content, final long modified) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+        return file;
+    }
+
+    @Test
+    public void read_readsFileOnlyOnce() throws IOException {
+        final Path file = write(tmp.newFile().toPath(), "foo", 1000L);
+
+        assertThat(sut.read(file, ENCODING), is("foo"));
+        assertThat(sut.read(file, ENCODING), is("foo"));
+        assertThat(sut.getStatistics().getHits(), is(1L));
+        assertThat(sut.getStatistics().getMisses(), is(1L));
+    }
+
+    @Test
+    public void read_readsModifiedFileAgain() throws IOException {
+        final Path file = write(tmp.newFile().toPath(), "foo", 1000L);
+        assertThat(sut.read(file, ENCODING), is("foo"));
+
+        write(file, "bar", 2000L);
+
+        assertThat(sut.read(file, ENCODING), is("bar"));
+    }
+
+    @Test
+    public void read_readsFileWithChangedSizeAgain() throws IOException {
+        final Path file = write(tmp.newFile().toPath(), "foo", 1000L);
+        assertThat(sut.read(file, ENCODING), is("foo"));
+
+        write(file, "foobar", 1000L);
+
+        assertThat(sut.read(file, ENCODING), is("foobar"));
+    }
+
+    @Test
+    public void read_doesNotCheckModificationWithinUpdateDelay() throws IOException {
+        sut.setUpdateDelay(60000L);
+        final Path file = write(tmp.newFile().toPath(), "foo", 1000L);
+        assertThat(sut.read(file, ENCODING), is("foo"));
+
+        write(file, "bar", 2000L);
+
+        assertThat(sut.read(file, ENCODING), is("foo"));
+    }
+
+    @Test
+    public void read_cachesSameFileWithDifferentPath() throws IOException {
+        final Path file = write(tmp.newFile("foo.txt").toPath(), "foo", 1000L);
+
+        sut.read(file, ENCODING);
+        sut.read(file.getParent().resolve(".").resolve("foo.txt"), ENCODING);
+
+        assertThat(sut.getStatistics().getHits(), is(1L));
+    }
+
+    @Test
+    public void read_disabledCache() throws IOException {
+        sut.setMaxSize(0);
+        final Path file = write(tmp.newFile().toPath(), "foo", 1000L);
+
+        assertThat(sut.read(file, ENCODING), is("foo"));
+        assertThat(sut.read(file, ENCODING), is("foo"));
+        assertThat(sut.getStatistics().getMisses(), is(0L));
+        assertThat(sut.getStatistics().getSize(), is(0));
+    }
+
+    @Test
+    public void read_disabledCacheReadsModifiedFile() throws IOException {
+        final TemplateFileCache disabled = new TemplateFileCache(0);
+        final Path file = write(tmp.newFile().toPath(), "foo", 1000L);
+        assertThat(disabled.read(file, ENCODING), is("foo"));
+
+        write(file, "bar", 1000L);
+
+        assertThat(disabled.read(file, ENCODING), is("bar"));
+        assertThat(disabled.getStatistics().getMisses(), is(0L));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_throwsExceptionIfFileDoesNotExist() throws IOException {
+        sut.read(tmp.getRoot().toPath().resolve("snafu"), ENCODING);
+    }
+
+    @Test
+    public void read_replacesMalformedInput() throws IOException {
+        final byte[] bytes = {(byte) 'f', (byte) 0xff, (byte) 'o'};
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, bytes);
+
+        assertThat(sut.read(file, ENCODING), is(equalTo(new String(bytes, ENCODING))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setUpdateDelay_mustNotBeNegative() {
+        sut.setUpdateDelay(-1L);
+    }
+
+}
@@ -1,5 +1,8 @@
 package de.weltraumschaf.freemarkerdown;
 
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateScalarModel;
 import java.util.Map;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
@@ -86,6 +89,52 @@ public class VariableScopeTest {
         assertThat(data, hasEntry("narf", (Object) "narf"));
     }
 
+    @Test
+    public void getVariable() {
+        final VariableScope parentTwo = new VariableScope();
+        parentTwo.assignVariable("blub", "lulu");
+        parentTwo.assignVariable("narf", "narf");
+        final VariableScope parentOne = new VariableScope();
+        parentOne.setParent(parentTwo);
+        parentOne.assignVariable("blub", "lala");
+        sut.setParent(parentOne);
+        sut.assignVariable("foo", "bar");
+
+        assertThat(sut.getVariable("foo"), is((Object) "bar"));
+        assertThat(sut.getVariable("blub"), is((Object) "lala"));
+        assertThat(sut.getVariable("narf"), is((Object) "narf"));
+        assertThat(sut.getVariable("snafu"), is(nullValue()));
+    }
+
+    @Test
+    public void isEmpty() {
+        final VariableScope parent = new VariableScope();
+        sut.setParent(parent);
+
+        assertThat(sut.isEmpty(), is(true));
+
+        parent.assignVariable("foo", "bar");
+
+        assertThat(sut.isEmpty(), is(false));
+    }
+
+    @Test
+    public void toTemplateModel() throws TemplateModelException {
+        final VariableScope parent = new VariableScope();
+        parent.assignVariable("foo", "snafu");
+        parent.assignVariable("blub", "lala");
+        sut.setParent(parent);
+        sut.assignVariable("foo", "bar");
+
+        final TemplateHashModel model = sut.toTemplateModel(new FreeMarker().createDefaultObjectWrapper());
+
+        assertThat(model.isEmpty(), is(false));
+        assertThat(((TemplateScalarModel) model.get("foo")).getAsString(), is("bar"));
+        assertThat(((TemplateScalarModel) model.get("blub")).getAsString(), is("lala"));
+        assertThat(model.get("foo"), is(sameInstance(model.get("foo"))));
+        assertThat(model.get("snafu"), is(nullValue()));
+    }
+
     @Test
     public void equalsContract() {
         final VariableScope variableScope = new VariableScope();